@@ -0,0 +1,41 @@
+package com.dws.challenge.audit;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+  Outcome of one pass of the invariant auditor over the account store.
+ */
+@Getter
+public class AuditReport {
+
+  private final long accountsScanned;
+
+  private final List<String> negativeBalanceAccountIds;
+
+  private final BigDecimal actualTotal;
+
+  private final BigDecimal expectedTotal;
+
+  // false when the store was cleared during the pass, the totals then say nothing about conservation
+  private final boolean conservationChecked;
+
+  public AuditReport(long accountsScanned, List<String> negativeBalanceAccountIds,
+                     BigDecimal actualTotal, BigDecimal expectedTotal, boolean conservationChecked) {
+    this.accountsScanned = accountsScanned;
+    this.negativeBalanceAccountIds = negativeBalanceAccountIds;
+    this.actualTotal = actualTotal;
+    this.expectedTotal = expectedTotal;
+    this.conservationChecked = conservationChecked;
+  }
+
+  public boolean isConservationViolated() {
+    return conservationChecked && actualTotal.compareTo(expectedTotal) != 0;
+  }
+
+  public BigDecimal getDrift() {
+    return conservationChecked ? actualTotal.subtract(expectedTotal) : BigDecimal.ZERO;
+  }
+}
@@ -0,0 +1,221 @@
+package com.dws.challenge.audit;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsLedger;
+import com.dws.challenge.service.AccountsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Background check that no money is created or destroyed and no balance goes negative.
+
+  The store is scanned while transfers keep running. Each pass opens a ledger snapshot
+  and sums every account as it was at the snapshot's cut (see AccountsLedger), so the
+  total is compared with the money deposited up to the cut even while transfers overlap
+  the pass. Negative balances are checked on the live balances. A pass is only
+  inconclusive when the store was cleared while it ran.
+  The scan pauses between chunks so it stays under the configured share of one CPU.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "accounts.audit.enabled", havingValue = "true")
+public class InvariantAuditor {
+
+  private static final int MAX_REPORTED_ACCOUNTS = 10;
+
+  private final AccountsService accountsService;
+
+  private final long intervalMillis;
+
+  private final double maxCpuFraction;
+
+  private final int chunkSize;
+
+  private final Counter cleanPasses;
+
+  private final Counter inconclusivePasses;
+
+  private final Counter negativeBalanceViolations;
+
+  private final Counter conservationViolations;
+
+  private final Timer passDuration;
+
+  private volatile AuditReport lastReport;
+
+  private volatile boolean running;
+
+  private Thread auditorThread;
+
+  public InvariantAuditor(AccountsService accountsService, MeterRegistry meterRegistry,
+                          @Value("${accounts.audit.interval-ms:10000}") long intervalMillis,
+                          @Value("${accounts.audit.max-cpu-fraction:0.05}") double maxCpuFraction,
+                          @Value("${accounts.audit.chunk-size:1000}") int chunkSize) {
+    if (maxCpuFraction <= 0 || maxCpuFraction > 1) {
+      throw new IllegalArgumentException("accounts.audit.max-cpu-fraction must be in (0, 1]");
+    }
+    if (accountsService.getLedger() == null) {
+      throw new IllegalArgumentException("The invariant auditor needs an AccountsService with a ledger");
+    }
+    this.accountsService = accountsService;
+    this.intervalMillis = intervalMillis;
+    this.maxCpuFraction = maxCpuFraction;
+    this.chunkSize = Math.max(1, chunkSize);
+
+    this.cleanPasses = Counter.builder("accounts.audit.passes").tag("result", "clean").register(meterRegistry);
+    this.inconclusivePasses = Counter.builder("accounts.audit.passes").tag("result", "inconclusive")
+            .register(meterRegistry);
+    this.negativeBalanceViolations = Counter.builder("accounts.audit.violations").tag("invariant", "negative-balance")
+            .register(meterRegistry);
+    this.conservationViolations = Counter.builder("accounts.audit.violations").tag("invariant", "conservation")
+            .register(meterRegistry);
+    this.passDuration = Timer.builder("accounts.audit.duration").register(meterRegistry);
+    Gauge.builder("accounts.audit.negative.balances", this,
+            auditor -> auditor.lastReport == null ? 0 : auditor.lastReport.getNegativeBalanceAccountIds().size())
+            .register(meterRegistry);
+    Gauge.builder("accounts.audit.drift", this,
+            auditor -> auditor.lastReport == null ? 0 : auditor.lastReport.getDrift().doubleValue())
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    auditorThread = new Thread(this::run, "invariant-auditor");
+    auditorThread.setDaemon(true);
+    auditorThread.setPriority(Thread.MIN_PRIORITY);
+    auditorThread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    auditorThread.interrupt();
+  }
+
+  public AuditReport getLastReport() {
+    return lastReport;
+  }
+
+  public synchronized AuditReport auditOnce() {
+    long started = System.nanoTime();
+    AccountsLedger ledger = accountsService.getLedger();
+    AccountsLedger.Snapshot snapshot = ledger.openSnapshot();
+    Scan scan = new Scan(snapshot);
+    try {
+      accountsService.getAccountsRepository().forEachAccount(scan::visit);
+    } finally {
+      ledger.closeSnapshot(snapshot);
+    }
+
+    AuditReport report = new AuditReport(scan.accounts, scan.negativeBalanceAccountIds,
+            scan.total, snapshot.getExpectedTotal(), !snapshot.isInvalidated());
+    passDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    publish(report, scan.negativeBalances);
+    return report;
+  }
+
+  private void publish(AuditReport report, long negativeBalances) {
+    lastReport = report;
+    if (negativeBalances > 0) {
+      negativeBalanceViolations.increment(negativeBalances);
+      log.error("Invariant violated: {} accounts with a negative balance, e.g. {}",
+              negativeBalances, report.getNegativeBalanceAccountIds());
+    }
+    if (report.isConservationViolated()) {
+      conservationViolations.increment();
+      log.error("Invariant violated: account balances add up to {} but {} was deposited",
+              report.getActualTotal(), report.getExpectedTotal());
+    }
+    if (!report.isConservationChecked()) {
+      inconclusivePasses.increment();
+    } else if (negativeBalances == 0 && !report.isConservationViolated()) {
+      cleanPasses.increment();
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        auditOnce();
+      } catch (RuntimeException ex) {
+        log.warn("Invariant audit pass failed", ex);
+      }
+      try {
+        Thread.sleep(intervalMillis);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /*
+    Accumulates one pass and throttles it: after each chunk the scan sleeps long enough
+    for the time spent scanning to stay at maxCpuFraction of the elapsed time.
+   */
+  private final class Scan {
+
+    private final AccountsLedger.Snapshot snapshot;
+
+    private long accounts;
+
+    private long negativeBalances;
+
+    private final List<String> negativeBalanceAccountIds = new ArrayList<>();
+
+    private BigDecimal total = BigDecimal.ZERO;
+
+    private long chunkStarted = System.nanoTime();
+
+    private Scan(AccountsLedger.Snapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    private void visit(Account account) {
+      BigDecimal balanceAtCut = snapshot.balanceAtCut(account);
+      if (balanceAtCut != null) {
+        total = total.add(balanceAtCut);
+      }
+      BigDecimal balance = account.getBalance();
+      if (balance != null) {
+        if (balance.signum() < 0) {
+          negativeBalances++;
+          if (negativeBalanceAccountIds.size() < MAX_REPORTED_ACCOUNTS) {
+            negativeBalanceAccountIds.add(account.getAccountId());
+          }
+        }
+      }
+      if (++accounts % chunkSize == 0) {
+        pause();
+      }
+    }
+
+    private void pause() {
+      long worked = System.nanoTime() - chunkStarted;
+      long pauseNanos = (long) (worked * (1 - maxCpuFraction) / maxCpuFraction);
+      if (pauseNanos > 0 && !Thread.currentThread().isInterrupted()) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(pauseNanos);
+        } catch (InterruptedException ex) {
+          // finish the pass without pausing, the run loop exits afterwards
+          Thread.currentThread().interrupt();
+        }
+      }
+      chunkStarted = System.nanoTime();
+    }
+  }
+}
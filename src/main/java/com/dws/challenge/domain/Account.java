@@ -16,9 +16,10 @@ public class Account {
   @NotEmpty
   private final String accountId;
 
+  // volatile so the auditor can read balances while transfers run, see AccountsLedger
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private volatile BigDecimal balance;
 
   public Account(String accountId) {
     this.accountId = accountId;
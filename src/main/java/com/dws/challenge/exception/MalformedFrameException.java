@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class MalformedFrameException extends RuntimeException {
+
+  public MalformedFrameException(String message) {
+    super(message);
+  }
+}
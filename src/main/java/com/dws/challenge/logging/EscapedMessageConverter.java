@@ -0,0 +1,57 @@
+package com.dws.challenge.logging;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/*
+  %escapedMsg: the formatted message with quotes, backslashes and line breaks escaped, so a
+  message can never end the msg="..." field or the log line early.
+ */
+public class EscapedMessageConverter extends ClassicConverter {
+
+  @Override
+  public String convert(ILoggingEvent event) {
+    return escape(event.getFormattedMessage());
+  }
+
+  static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      String replacement;
+      switch (c) {
+        case '"':
+          replacement = "\\\"";
+          break;
+        case '\\':
+          replacement = "\\\\";
+          break;
+        case '\n':
+          replacement = "\\n";
+          break;
+        case '\r':
+          replacement = "\\r";
+          break;
+        case '\t':
+          replacement = "\\t";
+          break;
+        default:
+          replacement = null;
+      }
+      if (replacement != null && escaped == null) {
+        escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+      }
+      if (escaped != null) {
+        if (replacement != null) {
+          escaped.append(replacement);
+        } else {
+          escaped.append(c);
+        }
+      }
+    }
+    return escaped == null ? value : escaped.toString();
+  }
+}
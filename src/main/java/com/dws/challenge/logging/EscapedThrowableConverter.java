@@ -0,0 +1,37 @@
+package com.dws.challenge.logging;
+
+import ch.qos.logback.classic.pattern.ExtendedThrowableProxyConverter;
+import ch.qos.logback.classic.pattern.ThrowableHandlingConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/*
+  %escapedEx: renders the stack trace as a single escaped exception="..." field, or nothing
+  when the event has no throwable. Being a ThrowableHandlingConverter it also stops the
+  layout from appending the default multi-line stack trace.
+ */
+public class EscapedThrowableConverter extends ThrowableHandlingConverter {
+
+  private final ExtendedThrowableProxyConverter stackTrace = new ExtendedThrowableProxyConverter();
+
+  @Override
+  public void start() {
+    stackTrace.setContext(getContext());
+    stackTrace.setOptionList(getOptionList());
+    stackTrace.start();
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    stackTrace.stop();
+    super.stop();
+  }
+
+  @Override
+  public String convert(ILoggingEvent event) {
+    if (event.getThrowableProxy() == null) {
+      return "";
+    }
+    return " exception=\"" + EscapedMessageConverter.escape(stackTrace.convert(event).trim()) + "\"";
+  }
+}
@@ -3,12 +3,23 @@ package com.dws.challenge.repository;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
 
+import java.util.function.Consumer;
+
 public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
   Account getAccount(String accountId);
 
+  void forEachAccount(Consumer<Account> action);
+
+  /*
+    Brings both accounts into memory, for stores that page accounts in, so that the
+    getAccount calls that follow do not load them while the caller holds its locks.
+   */
+  default void prefetch(String accountId, String otherAccountId) {
+  }
+
   void clearAccounts();
 
 }
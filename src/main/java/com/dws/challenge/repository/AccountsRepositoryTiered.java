@@ -0,0 +1,262 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+  Keeps the frequently used accounts on heap and every account in a memory mapped cold store.
+
+  - The hot set is bounded by a memory budget; when it overflows a background evictor drops
+    the least frequently used accounts (access counts are halved on every sweep so old
+    popularity fades).
+  - Balance changes are written through to the cold store, so eviction never has to write
+    back and the cold store is always complete.
+  - A miss loads the account on the calling thread. prefetch, which AccountsService calls
+    before it locks the two accounts of a transfer, loads two missing accounts in parallel,
+    one of them on the fault pool; concurrent faults for the same account share one load.
+  - All changes to one account id in the hot map go through ConcurrentHashMap.compute, which
+    keeps faults, write throughs and evictions of that account in order.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.storage.type", havingValue = "tiered")
+public class AccountsRepositoryTiered implements AccountsRepository {
+
+    // object header, id string, BigDecimal and map node of a hot account
+    static final long ESTIMATED_BYTES_PER_HOT_ACCOUNT = 256;
+
+    private final Map<String, TieredAccount> hotAccounts = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<TieredAccount>> pendingFaults = new ConcurrentHashMap<>();
+
+    private final MappedAccountStore coldAccounts;
+
+    private final long maxHotAccounts;
+
+    private final long evictionTarget;
+
+    private final ExecutorService faultExecutor;
+
+    private final ExecutorService evictionExecutor;
+
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong faults = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AccountsRepositoryTiered(@Value("${accounts.storage.tiered.path:}") String path,
+                                    @Value("${accounts.storage.tiered.capacity:100000000}") long capacity,
+                                    @Value("${accounts.storage.tiered.hot-memory-bytes:268435456}") long hotMemoryBytes,
+                                    @Value("${accounts.storage.tiered.fault-threads:4}") int faultThreads) throws IOException {
+        Path file = path.isEmpty() ? Files.createTempFile("accounts-cold", ".dat") : Paths.get(path);
+        this.coldAccounts = new MappedAccountStore(file, capacity);
+        this.maxHotAccounts = Math.max(1, hotMemoryBytes / ESTIMATED_BYTES_PER_HOT_ACCOUNT);
+        this.evictionTarget = maxHotAccounts - maxHotAccounts / 10;
+        this.faultExecutor = Executors.newFixedThreadPool(faultThreads, daemon("account-fault"));
+        this.evictionExecutor = Executors.newSingleThreadExecutor(daemon("account-evictor"));
+        log.info("Tiered account storage in {} with room for {} hot accounts", file, maxHotAccounts);
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        hotAccounts.compute(account.getAccountId(), (accountId, existing) -> {
+            if (existing != null || !coldAccounts.insert(accountId, account.getBalance())) {
+                throw new DuplicateAccountIdException(
+                        "Account id " + accountId + " already exists!");
+            }
+            return new TieredAccount(accountId, account.getBalance(), this);
+        });
+        evictIfOverBudget();
+    }
+
+    @Override
+    public Account getAccount(String accountId) {
+        TieredAccount account = hotAccounts.get(accountId);
+        if (account != null) {
+            hits.incrementAndGet();
+            account.touch();
+            return account;
+        }
+        return faultIn(accountId);
+    }
+
+    @Override
+    public void prefetch(String accountId, String otherAccountId) {
+        boolean missing = !hotAccounts.containsKey(accountId);
+        boolean otherMissing = !hotAccounts.containsKey(otherAccountId);
+        if (missing && otherMissing) {
+            CompletableFuture<TieredAccount> fault = faultInAsync(accountId);
+            faultIn(otherAccountId);
+            try {
+                fault.join();
+            } catch (CompletionException ex) {
+                throw (RuntimeException) ex.getCause();
+            }
+        } else if (missing) {
+            faultIn(accountId);
+        } else if (otherMissing) {
+            faultIn(otherAccountId);
+        }
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        coldAccounts.forEach((accountId, balance) -> action.accept(new Account(accountId, balance)));
+    }
+
+    @Override
+    public void clearAccounts() {
+        hotAccounts.clear();
+        coldAccounts.clear();
+    }
+
+    public long getHotAccountCount() {
+        return hotAccounts.size();
+    }
+
+    public long getColdAccountCount() {
+        return coldAccounts.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getFaults() {
+        return faults.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        faultExecutor.shutdownNow();
+        evictionExecutor.shutdownNow();
+        coldAccounts.close();
+    }
+
+    /*
+      Stores the balance in the cold store and then on heap; when the cold store rejects it
+      (ArithmeticException for a balance it cannot encode) neither tier changes.
+     */
+    void writeThrough(TieredAccount account, BigDecimal balance) {
+        hotAccounts.compute(account.getAccountId(), (accountId, current) -> {
+            coldAccounts.update(accountId, balance);
+            account.loadBalance(balance);
+            // the account was evicted and faulted in again while the caller held the old instance
+            if (current != null && current != account) {
+                current.loadBalance(balance);
+            }
+            return current;
+        });
+    }
+
+    private TieredAccount faultIn(String accountId) {
+        TieredAccount account = hotAccounts.compute(accountId, (id, current) -> {
+            if (current != null) {
+                return current;
+            }
+            BigDecimal balance = coldAccounts.get(id);
+            if (balance == null) {
+                return null;
+            }
+            faults.incrementAndGet();
+            return new TieredAccount(id, balance, this);
+        });
+        if (account != null) {
+            evictIfOverBudget();
+        }
+        return account;
+    }
+
+    private CompletableFuture<TieredAccount> faultInAsync(String accountId) {
+        CompletableFuture<TieredAccount> fault = new CompletableFuture<>();
+        CompletableFuture<TieredAccount> pending = pendingFaults.putIfAbsent(accountId, fault);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            faultExecutor.execute(() -> {
+                try {
+                    fault.complete(faultIn(accountId));
+                } catch (RuntimeException ex) {
+                    fault.completeExceptionally(ex);
+                } finally {
+                    pendingFaults.remove(accountId, fault);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingFaults.remove(accountId, fault);
+            fault.completeExceptionally(ex);
+        }
+        return fault;
+    }
+
+    private void evictIfOverBudget() {
+        if (hotAccounts.size() > maxHotAccounts && evictionScheduled.compareAndSet(false, true)) {
+            evictionExecutor.execute(() -> {
+                try {
+                    evict();
+                } finally {
+                    evictionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void evict() {
+        int threshold = 0;
+        while (hotAccounts.size() > evictionTarget) {
+            for (Iterator<TieredAccount> it = hotAccounts.values().iterator();
+                 it.hasNext() && hotAccounts.size() > evictionTarget; ) {
+                TieredAccount account = it.next();
+                if (account.getFrequency() <= threshold) {
+                    // the cold store already holds the balance, see writeThrough
+                    if (hotAccounts.remove(account.getAccountId(), account)) {
+                        evictions.incrementAndGet();
+                    }
+                } else {
+                    account.age();
+                }
+            }
+            threshold++;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
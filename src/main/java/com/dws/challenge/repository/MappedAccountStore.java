@@ -0,0 +1,387 @@
+package com.dws.challenge.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/*
+  Cold tier of the tiered repository: open addressing hash tables of fixed size slots in a
+  memory mapped file, so dormant accounts cost page cache instead of heap.
+
+  Slot layout (128 bytes): state | id length | id hash | id (UTF-8, up to 64 bytes)
+  | balance scale | unscaled length | unscaled balance (two's complement, up to 32 bytes).
+
+  The store grows instead of filling up: when the newest table reaches its load factor a
+  table twice its size is mapped behind it in the same file. An account stays in the table
+  it was inserted into, so lookups try every table; the tables double, so there are few.
+  Accounts that do not fit a slot (an id over 64 bytes, an opening balance over 32 bytes of
+  unscaled value) are kept in a small overflow map on heap, so the store takes every
+  account the in-memory repository takes.
+
+  Slots are never freed individually, so a probe can stop at the first empty slot.
+  Reads and writes of a slot hold the lock of its stripe, inserts are serialized.
+  The file is scratch space: it is recreated on startup and deleted on close.
+ */
+class MappedAccountStore implements Closeable {
+
+  private static final int SLOT_SIZE = 128;
+
+  private static final int MAX_ID_BYTES = 64;
+
+  private static final int MAX_UNSCALED_BYTES = 32;
+
+  private static final int STATE = 0;
+
+  private static final int ID_LENGTH = 1;
+
+  private static final int HASH = 4;
+
+  private static final int ID = 8;
+
+  private static final int SCALE = ID + MAX_ID_BYTES;
+
+  private static final int UNSCALED_LENGTH = SCALE + Integer.BYTES;
+
+  private static final int UNSCALED = UNSCALED_LENGTH + 1;
+
+  private static final byte EMPTY = 0;
+
+  private static final byte USED = 1;
+
+  // 2^23 slots of 128 bytes keep every mapping at 1 GiB, below the 2 GiB ByteBuffer limit
+  private static final int SEGMENT_BITS = 23;
+
+  private static final int STRIPES = 1024;
+
+  private final Path path;
+
+  private final FileChannel channel;
+
+  // oldest first, replaced (never changed) when a table is added
+  private volatile Table[] tables;
+
+  private final Map<String, BigDecimal> overflow = new ConcurrentHashMap<>();
+
+  private final Object[] stripes = new Object[STRIPES];
+
+  private final Object insertLock = new Object();
+
+  private final AtomicLong size = new AtomicLong();
+
+  MappedAccountStore(Path path, long expectedAccounts) throws IOException {
+    long slots = Long.highestOneBit(Math.max(16, expectedAccounts * 4 / 3));
+    this.path = path;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.tables = new Table[]{new Table(0, slots < expectedAccounts * 4 / 3 ? slots << 1 : slots)};
+    for (int s = 0; s < STRIPES; s++) {
+      stripes[s] = new Object();
+    }
+  }
+
+  long size() {
+    return size.get();
+  }
+
+  /*
+    Returns false when the account id is already stored.
+   */
+  boolean insert(String accountId, BigDecimal balance) {
+    byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+    int hash = accountId.hashCode();
+    synchronized (insertLock) {
+      if (overflow.containsKey(accountId)) {
+        return false;
+      }
+      Table[] current = tables;
+      if (fitsSlot(id)) {
+        for (Table table : current) {
+          if (table.find(hash, id) >= 0) {
+            return false;
+          }
+        }
+      }
+      if (!fitsSlot(id) || !fitsSlot(balance)) {
+        overflow.put(accountId, balance);
+      } else {
+        Table newest = current[current.length - 1];
+        if (newest.size >= newest.maxSize) {
+          newest = grow(newest);
+        }
+        newest.insert(hash, id, balance);
+      }
+      size.incrementAndGet();
+      return true;
+    }
+  }
+
+  BigDecimal get(String accountId) {
+    byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+    if (!fitsSlot(id)) {
+      return overflow.get(accountId);
+    }
+    int hash = accountId.hashCode();
+    Table[] current = tables;
+    for (int t = current.length - 1; t >= 0; t--) {
+      BigDecimal balance = current[t].get(hash, id);
+      if (balance != null) {
+        return balance;
+      }
+    }
+    return overflow.get(accountId);
+  }
+
+  void update(String accountId, BigDecimal balance) {
+    byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+    if (fitsSlot(id)) {
+      int hash = accountId.hashCode();
+      Table[] current = tables;
+      for (int t = current.length - 1; t >= 0; t--) {
+        if (current[t].update(hash, id, balance)) {
+          return;
+        }
+      }
+    }
+    if (overflow.replace(accountId, balance) == null) {
+      throw new IllegalStateException("Account id " + accountId + " is not in the cold store");
+    }
+  }
+
+  void forEach(BiConsumer<String, BigDecimal> action) {
+    for (Table table : tables) {
+      table.forEach(action);
+    }
+    overflow.forEach(action);
+  }
+
+  void clear() {
+    synchronized (insertLock) {
+      for (Table table : tables) {
+        table.clear();
+      }
+      overflow.clear();
+      size.set(0);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    Files.deleteIfExists(path);
+  }
+
+  // called with the insert lock held
+  private Table grow(Table newest) {
+    try {
+      Table next = new Table(newest.end(), newest.capacity << 1);
+      Table[] grown = Arrays.copyOf(tables, tables.length + 1);
+      grown[grown.length - 1] = next;
+      tables = grown;
+      return next;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Cannot grow the cold account store in " + path, ex);
+    }
+  }
+
+  private Object stripe(long slot) {
+    return stripes[(int) (slot & (STRIPES - 1))];
+  }
+
+  private static boolean fitsSlot(byte[] id) {
+    return id.length > 0 && id.length <= MAX_ID_BYTES;
+  }
+
+  // the two's complement of the unscaled value takes bitLength / 8 + 1 bytes
+  private static boolean fitsSlot(BigDecimal balance) {
+    return balance.unscaledValue().bitLength() / Byte.SIZE + 1 <= MAX_UNSCALED_BYTES;
+  }
+
+  /*
+    One hash table: a power of two number of slots mapped from the file at fileOffset.
+   */
+  private final class Table {
+
+    private final long fileOffset;
+
+    private final long capacity;
+
+    private final long maxSize;
+
+    private final MappedByteBuffer[] segments;
+
+    // only changed with the insert lock held
+    private long size;
+
+    private Table(long fileOffset, long capacity) throws IOException {
+      this.fileOffset = fileOffset;
+      this.capacity = capacity;
+      this.maxSize = capacity / 4 * 3;
+      long slotsPerSegment = Math.min(capacity, 1L << SEGMENT_BITS);
+      int segmentCount = (int) (capacity / slotsPerSegment);
+      this.segments = new MappedByteBuffer[segmentCount];
+      for (int s = 0; s < segmentCount; s++) {
+        segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, fileOffset + s * slotsPerSegment * SLOT_SIZE,
+                slotsPerSegment * SLOT_SIZE);
+      }
+    }
+
+    private long end() {
+      return fileOffset + capacity * SLOT_SIZE;
+    }
+
+    // the slot holding the id, -1 when it is not in this table
+    private long find(int hash, byte[] id) {
+      for (long slot = home(hash); ; slot = (slot + 1) & (capacity - 1)) {
+        synchronized (stripe(slot)) {
+          MappedByteBuffer buffer = segment(slot);
+          int offset = offset(slot);
+          if (buffer.get(offset + STATE) == EMPTY) {
+            return -1;
+          }
+          if (matches(buffer, offset, hash, id)) {
+            return slot;
+          }
+        }
+      }
+    }
+
+    private void insert(int hash, byte[] id, BigDecimal balance) {
+      for (long slot = home(hash); ; slot = (slot + 1) & (capacity - 1)) {
+        synchronized (stripe(slot)) {
+          MappedByteBuffer buffer = segment(slot);
+          int offset = offset(slot);
+          if (buffer.get(offset + STATE) == EMPTY) {
+            buffer.put(offset + ID_LENGTH, (byte) id.length);
+            buffer.putInt(offset + HASH, hash);
+            for (int i = 0; i < id.length; i++) {
+              buffer.put(offset + ID + i, id[i]);
+            }
+            writeBalance(buffer, offset, balance);
+            buffer.put(offset + STATE, USED);
+            size++;
+            return;
+          }
+        }
+      }
+    }
+
+    private BigDecimal get(int hash, byte[] id) {
+      for (long slot = home(hash); ; slot = (slot + 1) & (capacity - 1)) {
+        synchronized (stripe(slot)) {
+          MappedByteBuffer buffer = segment(slot);
+          int offset = offset(slot);
+          if (buffer.get(offset + STATE) == EMPTY) {
+            return null;
+          }
+          if (matches(buffer, offset, hash, id)) {
+            return readBalance(buffer, offset);
+          }
+        }
+      }
+    }
+
+    private boolean update(int hash, byte[] id, BigDecimal balance) {
+      for (long slot = home(hash); ; slot = (slot + 1) & (capacity - 1)) {
+        synchronized (stripe(slot)) {
+          MappedByteBuffer buffer = segment(slot);
+          int offset = offset(slot);
+          if (buffer.get(offset + STATE) == EMPTY) {
+            return false;
+          }
+          if (matches(buffer, offset, hash, id)) {
+            writeBalance(buffer, offset, balance);
+            return true;
+          }
+        }
+      }
+    }
+
+    private void forEach(BiConsumer<String, BigDecimal> action) {
+      for (long slot = 0; slot < capacity; slot++) {
+        String accountId;
+        BigDecimal balance;
+        synchronized (stripe(slot)) {
+          MappedByteBuffer buffer = segment(slot);
+          int offset = offset(slot);
+          if (buffer.get(offset + STATE) == EMPTY) {
+            continue;
+          }
+          byte[] id = new byte[buffer.get(offset + ID_LENGTH)];
+          for (int i = 0; i < id.length; i++) {
+            id[i] = buffer.get(offset + ID + i);
+          }
+          accountId = new String(id, StandardCharsets.UTF_8);
+          balance = readBalance(buffer, offset);
+        }
+        action.accept(accountId, balance);
+      }
+    }
+
+    private void clear() {
+      for (long slot = 0; slot < capacity; slot++) {
+        synchronized (stripe(slot)) {
+          segment(slot).put(offset(slot) + STATE, EMPTY);
+        }
+      }
+      size = 0;
+    }
+
+    private long home(int hash) {
+      long spread = hash * 0x9E3779B97F4A7C15L;
+      return (spread ^ (spread >>> 32)) & (capacity - 1);
+    }
+
+    private MappedByteBuffer segment(long slot) {
+      return segments[(int) (slot >>> SEGMENT_BITS)];
+    }
+  }
+
+  private static int offset(long slot) {
+    return (int) (slot & ((1L << SEGMENT_BITS) - 1)) * SLOT_SIZE;
+  }
+
+  private static boolean matches(MappedByteBuffer buffer, int offset, int hash, byte[] id) {
+    if (buffer.getInt(offset + HASH) != hash || buffer.get(offset + ID_LENGTH) != id.length) {
+      return false;
+    }
+    for (int i = 0; i < id.length; i++) {
+      if (buffer.get(offset + ID + i) != id[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeBalance(MappedByteBuffer buffer, int offset, BigDecimal balance) {
+    byte[] unscaled = balance.unscaledValue().toByteArray();
+    if (unscaled.length > MAX_UNSCALED_BYTES) {
+      throw new ArithmeticException("Balance " + balance + " is too large for tiered storage");
+    }
+    buffer.putInt(offset + SCALE, balance.scale());
+    buffer.put(offset + UNSCALED_LENGTH, (byte) unscaled.length);
+    for (int i = 0; i < unscaled.length; i++) {
+      buffer.put(offset + UNSCALED + i, unscaled[i]);
+    }
+  }
+
+  private static BigDecimal readBalance(MappedByteBuffer buffer, int offset) {
+    byte[] unscaled = new byte[buffer.get(offset + UNSCALED_LENGTH)];
+    for (int i = 0; i < unscaled.length; i++) {
+      unscaled[i] = buffer.get(offset + UNSCALED + i);
+    }
+    return new BigDecimal(new BigInteger(unscaled), buffer.getInt(offset + SCALE));
+  }
+}
@@ -0,0 +1,64 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+
+import java.math.BigDecimal;
+
+/*
+  Account handed out by the tiered repository. Every balance change is written through to
+  the cold store, so a caller still holding an instance that has just been evicted
+  (e.g. AccountsService in the middle of a transfer) cannot lose an update.
+
+  The new balance is computed first and only set on heap once the cold store has taken it;
+  a balance the cold store cannot encode leaves both tiers unchanged.
+ */
+class TieredAccount extends Account {
+
+  private static final int MAX_FREQUENCY = 255;
+
+  private final AccountsRepositoryTiered owner;
+
+  // approximate access count used for eviction, updated without synchronization
+  private int frequency = 1;
+
+  TieredAccount(String accountId, BigDecimal balance, AccountsRepositoryTiered owner) {
+    super(accountId, balance);
+    this.owner = owner;
+  }
+
+  @Override
+  public void deposit(BigDecimal amount) {
+    owner.writeThrough(this, getBalance().add(amount));
+  }
+
+  @Override
+  public void withdraw(BigDecimal amount) {
+    owner.writeThrough(this, getBalance().subtract(amount));
+  }
+
+  @Override
+  public void setBalance(BigDecimal balance) {
+    owner.writeThrough(this, balance);
+  }
+
+  /*
+    Sets the heap balance without writing it through, for balances the cold store already holds.
+   */
+  void loadBalance(BigDecimal balance) {
+    super.setBalance(balance);
+  }
+
+  void touch() {
+    if (frequency < MAX_FREQUENCY) {
+      frequency++;
+    }
+  }
+
+  int getFrequency() {
+    return frequency;
+  }
+
+  void age() {
+    frequency >>= 1;
+  }
+}
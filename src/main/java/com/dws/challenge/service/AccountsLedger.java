@@ -0,0 +1,174 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+  Book keeping for the money entering the account store, used by the invariant auditor to
+  check conservation against a consistent cut of the store while transfers keep running.
+
+  Every balance change runs inside an epoch (enter/exit, under the account locks). The
+  auditor opens a snapshot epoch: once the changes of the previous epoch have finished,
+  the store as it is at that moment is the cut. From then on every change first records
+  the balance it is about to overwrite (recordPreImage), and accounts created later
+  record a pre-image of zero, so a scan can take each account as it was at the cut,
+  one account at a time and without stopping transfers. Pre-images are only kept while
+  the snapshot is open, i.e. for the accounts touched during one audit pass.
+
+  Only created with the auditor (accounts.audit.enabled): every change joining an epoch
+  touches the same counter, which the transfer path does not pay for otherwise.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.audit.enabled", havingValue = "true")
+public class AccountsLedger {
+
+  private volatile Epoch current = new Epoch(false);
+
+  // deposits of the epochs that have finished, the expected total of the next cut
+  private final AtomicReference<BigDecimal> settledDeposits = new AtomicReference<>(BigDecimal.ZERO);
+
+  private final AtomicLong resets = new AtomicLong();
+
+  /*
+    Joins the current epoch; pair with exit in a finally block.
+   */
+  public Epoch enter() {
+    while (true) {
+      Epoch epoch = current;
+      epoch.inFlight.incrementAndGet();
+      if (current == epoch) {
+        return epoch;
+      }
+      // a snapshot opened in between, join the new epoch instead
+      epoch.inFlight.decrementAndGet();
+    }
+  }
+
+  public void exit(Epoch epoch) {
+    epoch.inFlight.decrementAndGet();
+  }
+
+  /*
+    Starts a consistent cut of the store. Only one snapshot can be open at a time.
+   */
+  public synchronized Snapshot openSnapshot() {
+    if (current.snapshot) {
+      throw new IllegalStateException("An account snapshot is already open");
+    }
+    long resetsAtCut = resets.get();
+    BigDecimal expectedTotal = switchEpoch(new Epoch(true));
+    return new Snapshot(current, expectedTotal, resetsAtCut);
+  }
+
+  public synchronized void closeSnapshot(Snapshot snapshot) {
+    if (current == snapshot.epoch) {
+      switchEpoch(new Epoch(false));
+    }
+  }
+
+  /*
+    Forgets all deposits, for when the store is cleared. Not meant to race with creates;
+    a snapshot open across a reset reports itself as invalidated.
+   */
+  public synchronized void reset() {
+    resets.incrementAndGet();
+    switchEpoch(new Epoch(false));
+    settledDeposits.set(BigDecimal.ZERO);
+  }
+
+  // waits for the changes of the replaced epoch and returns the deposits settled up to the switch
+  private BigDecimal switchEpoch(Epoch next) {
+    Epoch previous = current;
+    current = next;
+    while (previous.inFlight.get() > 0) {
+      Thread.onSpinWait();
+    }
+    return settledDeposits.accumulateAndGet(previous.deposited.get(), BigDecimal::add);
+  }
+
+  public static final class Epoch {
+
+    private final boolean snapshot;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicReference<BigDecimal> deposited = new AtomicReference<>(BigDecimal.ZERO);
+
+    private final Map<String, BigDecimal> preImages;
+
+    private Epoch(boolean snapshot) {
+      this.snapshot = snapshot;
+      this.preImages = snapshot ? new ConcurrentHashMap<>() : null;
+    }
+
+    public boolean isSnapshot() {
+      return snapshot;
+    }
+
+    /*
+      Call with the account locked and before changing its balance.
+     */
+    public void recordPreImage(Account account) {
+      BigDecimal balance = account.getBalance();
+      if (snapshot && balance != null) {
+        preImages.putIfAbsent(account.getAccountId(), balance);
+      }
+    }
+
+    /*
+      Call with the account id locked and before inserting it, only for an id that does not exist yet.
+     */
+    public void recordCreation(String accountId) {
+      if (snapshot) {
+        preImages.putIfAbsent(accountId, BigDecimal.ZERO);
+      }
+    }
+
+    public void recordDeposit(BigDecimal amount) {
+      deposited.accumulateAndGet(amount, BigDecimal::add);
+    }
+  }
+
+  public final class Snapshot {
+
+    private final Epoch epoch;
+
+    private final BigDecimal expectedTotal;
+
+    private final long resetsAtCut;
+
+    private Snapshot(Epoch epoch, BigDecimal expectedTotal, long resetsAtCut) {
+      this.epoch = epoch;
+      this.expectedTotal = expectedTotal;
+      this.resetsAtCut = resetsAtCut;
+    }
+
+    // money deposited up to the cut
+    public BigDecimal getExpectedTotal() {
+      return expectedTotal;
+    }
+
+    /*
+      The balance the account had at the cut, zero for accounts created after it.
+      Reads the live balance before looking for a pre-image: a change records its
+      pre-image before it writes the balance, so a changed balance is never taken.
+     */
+    public BigDecimal balanceAtCut(Account account) {
+      BigDecimal balance = account.getBalance();
+      BigDecimal preImage = epoch.preImages.get(account.getAccountId());
+      return preImage != null ? preImage : balance;
+    }
+
+    public boolean isInvalidated() {
+      return resets.get() != resetsAtCut;
+    }
+  }
+}
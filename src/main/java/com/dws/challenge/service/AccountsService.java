@@ -1,30 +1,58 @@
 package com.dws.challenge.service;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
 import com.dws.challenge.repository.AccountsRepository;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 @Service
 public class AccountsService {
-  @Autowired
-  private EmailNotificationService emailNotificationService;
+  // power of two; a fixed set of locks instead of one per account id ever seen
+  private static final int LOCK_STRIPES = 1024;
+
+  private final NotificationService notificationService;
 
-  private final Map<String, Lock> accountLocks = new HashMap<>();
+  private final Lock[] accountLocks = new Lock[LOCK_STRIPES];
 
+  /*
+    Only there when the invariant auditor runs (accounts.audit.enabled), otherwise
+    transfers and creates skip the book keeping altogether.
+   */
+  @Getter
+  private final AccountsLedger ledger;
+
+  /*
+    The store as seen through the service. With a ledger, creates and clears made
+    through it are booked like those of the service itself.
+   */
   @Getter
   private final AccountsRepository accountsRepository;
 
-  @Autowired
   public AccountsService(AccountsRepository accountsRepository) {
-    this.accountsRepository = accountsRepository;
+    this(accountsRepository, null);
+  }
+
+  public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
+    this(accountsRepository, notificationService, null);
+  }
+
+  @Autowired
+  public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+                         @Nullable AccountsLedger ledger) {
+    this.ledger = ledger;
+    this.accountsRepository = ledger == null ? accountsRepository : new LedgerBookedRepository(accountsRepository);
+    this.notificationService = notificationService;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      accountLocks[i] = new ReentrantLock();
+    }
   }
 
   public void createAccount(Account account) {
@@ -37,17 +65,21 @@ public class AccountsService {
 
   public void transferFund(String debtorAccountId, String creditorAccountId, BigDecimal amountToTransfer) {
 
-    Lock debtorLock = getAccountLock(debtorAccountId);
-    Lock creditorLock = getAccountLock(creditorAccountId);
+    int debtorStripe = lockStripe(debtorAccountId);
+    int creditorStripe = lockStripe(creditorAccountId);
 
-    // Always acquire locks in a consistent order to prevent deadlock
-    Lock firstLock = debtorAccountId.compareTo(creditorAccountId) < 0 ? debtorLock : creditorLock;
-    Lock secondLock = (firstLock == debtorLock) ? creditorLock : debtorLock;
+    // Always acquire locks in a consistent order (by stripe) to prevent deadlock. Two accounts
+    // on the same stripe share a lock, which is reentrant and simply taken twice.
+    Lock firstLock = accountLocks[Math.min(debtorStripe, creditorStripe)];
+    Lock secondLock = accountLocks[Math.max(debtorStripe, creditorStripe)];
 
     if (debtorAccountId.equals(creditorAccountId)) {
       throw new IllegalArgumentException("Cannot transfer funds to the same account.");
     }
 
+    // a tiered store pages both accounts in here rather than under the locks
+    accountsRepository.prefetch(debtorAccountId, creditorAccountId);
+
     firstLock.lock();
     try {
       secondLock.lock();
@@ -63,12 +95,22 @@ public class AccountsService {
           throw new RuntimeException("Not enough balance in debtor account for transfer.");
         }
 
-        debtorAccount.withdraw(amountToTransfer);
-        creditorAccount.deposit(amountToTransfer);
+        if (ledger == null) {
+          moveFunds(debtorAccount, creditorAccount, amountToTransfer);
+        } else {
+          AccountsLedger.Epoch epoch = ledger.enter();
+          try {
+            epoch.recordPreImage(debtorAccount);
+            epoch.recordPreImage(creditorAccount);
+            moveFunds(debtorAccount, creditorAccount, amountToTransfer);
+          } finally {
+            ledger.exit(epoch);
+          }
+        }
 
-        if (emailNotificationService != null) {
-          emailNotificationService.notifyAboutTransfer(debtorAccount, creditorAccountId + " has been credited with " + amountToTransfer);
-          emailNotificationService.notifyAboutTransfer(creditorAccount, debtorAccountId + " has been debited with " + amountToTransfer);
+        if (notificationService != null) {
+          notificationService.notifyAboutTransfer(debtorAccount, creditorAccountId + " has been credited with " + amountToTransfer);
+          notificationService.notifyAboutTransfer(creditorAccount, debtorAccountId + " has been debited with " + amountToTransfer);
         }
       } finally {
         secondLock.unlock();
@@ -78,10 +120,80 @@ public class AccountsService {
     }
   }
 
-  // Helper method to get or create a lock for an account
+  private static void moveFunds(Account debtorAccount, Account creditorAccount, BigDecimal amountToTransfer) {
+    BigDecimal debtorBalance = debtorAccount.getBalance();
+    debtorAccount.withdraw(amountToTransfer);
+    try {
+      creditorAccount.deposit(amountToTransfer);
+    } catch (RuntimeException ex) {
+      // e.g. the new balance cannot be stored, give the debtor its money back
+      debtorAccount.setBalance(debtorBalance);
+      throw ex;
+    }
+  }
+
   private Lock getAccountLock(String accountId) {
-    synchronized (accountLocks) {
-      return accountLocks.computeIfAbsent(accountId, k -> new ReentrantLock());
+    return accountLocks[lockStripe(accountId)];
+  }
+
+  private static int lockStripe(String accountId) {
+    int hash = accountId.hashCode();
+    return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+  }
+
+  /*
+    Books creates and clears in the ledger. A create runs under the account lock so an
+    open snapshot learns about the new account before any transfer can reach it.
+   */
+  private final class LedgerBookedRepository implements AccountsRepository {
+
+    private final AccountsRepository delegate;
+
+    private LedgerBookedRepository(AccountsRepository delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+      Lock lock = getAccountLock(account.getAccountId());
+      lock.lock();
+      try {
+        AccountsLedger.Epoch epoch = ledger.enter();
+        try {
+          if (epoch.isSnapshot() && delegate.getAccount(account.getAccountId()) == null) {
+            epoch.recordCreation(account.getAccountId());
+          }
+          delegate.createAccount(account);
+          if (account.getBalance() != null) {
+            epoch.recordDeposit(account.getBalance());
+          }
+        } finally {
+          ledger.exit(epoch);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public Account getAccount(String accountId) {
+      return delegate.getAccount(accountId);
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+      delegate.forEachAccount(action);
+    }
+
+    @Override
+    public void prefetch(String accountId, String otherAccountId) {
+      delegate.prefetch(accountId, otherAccountId);
+    }
+
+    @Override
+    public void clearAccounts() {
+      delegate.clearAccounts();
+      ledger.reset();
     }
   }
 
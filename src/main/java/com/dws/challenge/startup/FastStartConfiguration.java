@@ -0,0 +1,25 @@
+package com.dws.challenge.startup;
+
+import com.dws.challenge.audit.InvariantAuditor;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.web.AccountsController;
+import com.dws.challenge.wire.BinaryTransferServer;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+  Beans that stay eager when spring.main.lazy-initialization is on (faststart profile):
+  the servers and the auditor only start their threads when created, and the account
+  path is built up front so the first request does not pay for it.
+ */
+@Configuration
+public class FastStartConfiguration {
+
+  @Bean
+  static LazyInitializationExcludeFilter eagerAccountBeans() {
+    return LazyInitializationExcludeFilter.forBeanTypes(AccountsRepository.class, AccountsService.class,
+            AccountsController.class, BinaryTransferServer.class, InvariantAuditor.class);
+  }
+}
@@ -0,0 +1,65 @@
+package com.dws.challenge.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+  Logs how long after JVM start the application became ready and served its first request,
+  the numbers to compare when tuning the faststart profile. Requests before readiness (the
+  warm-up of TransferPathWarmer) do not count as the first request.
+
+  With accounts.startup.exit-on-ready the application shuts down as soon as it is ready;
+  the cdsArchive Gradle task uses this for its training run.
+ */
+@Slf4j
+@Component
+public class StartupTimeReporter extends OncePerRequestFilter {
+
+  private final boolean exitOnReady;
+
+  private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+
+  private volatile boolean ready;
+
+  public StartupTimeReporter(@Value("${accounts.startup.exit-on-ready:false}") boolean exitOnReady) {
+    this.exitOnReady = exitOnReady;
+  }
+
+  @EventListener
+  public void onApplicationReady(ApplicationReadyEvent event) {
+    ready = true;
+    log.info("Application ready {} ms after JVM start", uptimeMillis());
+    if (exitOnReady) {
+      System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      if (ready && !firstRequestServed.get() && firstRequestServed.compareAndSet(false, true)) {
+        log.info("First request served {} ms after JVM start", uptimeMillis());
+      }
+    }
+  }
+
+  private static long uptimeMillis() {
+    return ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+}
@@ -0,0 +1,150 @@
+package com.dws.challenge.startup;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransactionDetails;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.AccountsRepositoryTiered;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.NotificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+
+/*
+  Runs synthetic transfers before the application reports readiness, so the JIT has compiled
+  the transfer path by the time real traffic arrives. Application runners complete before the
+  readiness state switches to ACCEPTING_TRAFFIC, and the live account store is never changed.
+
+  The warm-up stops at accounts.startup.warmup.max-millis however far it got, so it never
+  delays readiness by much more than that budget. Two parts, in this order:
+  - successful transfers, JSON binding and bean validation included, against a scratch
+    store of the same type as the live one and with a no-op notification service, so the
+    call sites see the receiver types they will see in production
+  - requests (accounts.startup.warmup.requests, off by default) through the embedded server
+    (filters, dispatcher, message conversion, validation, controller and AccountsService up
+    to the account lookup) for accounts that do not exist, which are rejected before any
+    balance is touched
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "accounts.startup.warmup.enabled", havingValue = "true")
+public class TransferPathWarmer implements ApplicationRunner {
+
+  private static final int ACCOUNTS = 64;
+
+  private static final NotificationService NO_NOTIFICATIONS = (account, transferDescription) -> {
+  };
+
+  private final ObjectMapper objectMapper;
+
+  private final Validator validator;
+
+  private final AccountsRepository liveRepository;
+
+  private final Environment environment;
+
+  private final int transfers;
+
+  private final int requests;
+
+  private final long maxMillis;
+
+  public TransferPathWarmer(ObjectMapper objectMapper, Validator validator, AccountsRepository liveRepository,
+                            Environment environment,
+                            @Value("${accounts.startup.warmup.transfers:20000}") int transfers,
+                            @Value("${accounts.startup.warmup.requests:0}") int requests,
+                            @Value("${accounts.startup.warmup.max-millis:1000}") long maxMillis) {
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.liveRepository = liveRepository;
+    this.environment = environment;
+    this.transfers = transfers;
+    this.requests = requests;
+    this.maxMillis = maxMillis;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException, InterruptedException {
+    long started = System.nanoTime();
+    long deadline = started + maxMillis * 1_000_000;
+    int transferred = warmUpTransfers(deadline);
+    int served = warmUpRequests(deadline);
+    log.info("Warmed up the transfer path with {} synthetic transfers and {} requests in {} ms", transferred,
+            served, (System.nanoTime() - started) / 1_000_000);
+  }
+
+  private int warmUpTransfers(long deadline) throws IOException {
+    AccountsRepository scratchRepository = scratchRepository();
+    try {
+      AccountsService scratchService = new AccountsService(scratchRepository, NO_NOTIFICATIONS);
+      for (int i = 0; i < ACCOUNTS; i++) {
+        scratchService.createAccount(new Account("Warmup-" + i, new BigDecimal("1000000.00")));
+      }
+
+      int i = 0;
+      for (; i < transfers && System.nanoTime() - deadline < 0; i++) {
+        TransactionDetails details = objectMapper.readValue(transferRequest("Warmup-" + (i % ACCOUNTS),
+                "Warmup-" + ((i + 1) % ACCOUNTS), i), TransactionDetails.class);
+        Set<ConstraintViolation<TransactionDetails>> violations = validator.validate(details);
+        if (violations.isEmpty()) {
+          scratchService.transferFund(details.getFromAccountId(), details.getToAccountId(),
+                  details.getTransferAmount());
+        }
+      }
+      return i;
+    } finally {
+      if (scratchRepository instanceof AccountsRepositoryTiered) {
+        ((AccountsRepositoryTiered) scratchRepository).close();
+      }
+    }
+  }
+
+  // same store type as the live one, the tiered one with a hot set too small for all accounts
+  private AccountsRepository scratchRepository() throws IOException {
+    if (liveRepository instanceof AccountsRepositoryTiered) {
+      return new AccountsRepositoryTiered("", ACCOUNTS * 4L, ACCOUNTS / 2 * 256L, 1);
+    }
+    return new AccountsRepositoryInMemory();
+  }
+
+  // off by default; no server when running without a web environment, e.g. in mock MVC tests
+  private int warmUpRequests(long deadline) throws IOException, InterruptedException {
+    Integer port = environment.getProperty("local.server.port", Integer.class);
+    if (port == null || port <= 0 || requests <= 0 || System.nanoTime() - deadline >= 0) {
+      return 0;
+    }
+    HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    URI uri = URI.create("http://127.0.0.1:" + port + "/v1/accounts/transfer");
+    int i = 0;
+    for (; i < requests && System.nanoTime() - deadline < 0; i++) {
+      HttpRequest request = HttpRequest.newBuilder(uri)
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString(
+                      transferRequest("Warmup-missing-" + (i % ACCOUNTS), "Warmup-missing-" + ((i + 1) % ACCOUNTS), i)))
+              .build();
+      httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+    return i;
+  }
+
+  private static String transferRequest(String from, String to, int i) {
+    return "{\"fromAccountId\":\"" + from + "\",\"toAccountId\":\"" + to + "\",\"transferAmount\":"
+            + (1 + i % 100) + ".25}";
+  }
+}
@@ -25,14 +25,19 @@ public class AccountsController {
 
   private final AccountsService accountsService;
 
+  private final RequestLogSampler requestLogSampler;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, RequestLogSampler requestLogSampler) {
     this.accountsService = accountsService;
+    this.requestLogSampler = requestLogSampler;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
-    log.info("Creating account {}", account);
+    if (log.isInfoEnabled() && requestLogSampler.shouldLog("createAccount")) {
+      log.info("Creating account {}", account.getAccountId());
+    }
 
     try {
       this.accountsService.createAccount(account);
@@ -45,7 +50,9 @@ public class AccountsController {
 
   @GetMapping(path = "/{accountId}")
   public Account getAccount(@PathVariable String accountId) {
-    log.info("Retrieving account for id {}", accountId);
+    if (log.isInfoEnabled() && requestLogSampler.shouldLog("getAccount")) {
+      log.info("Retrieving account for id {}", accountId);
+    }
     return this.accountsService.getAccount(accountId);
   }
 
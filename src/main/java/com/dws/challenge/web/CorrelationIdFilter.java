@@ -0,0 +1,49 @@
+package com.dws.challenge.web;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/*
+  Puts the caller supplied correlation id (or a generated one) into the MDC for
+  the lifetime of the request. AccountsService and the notification service run
+  on the request thread, so their log lines carry the same id. The id is printed
+  as an unquoted log field, so a caller supplied id that is not a plain token is
+  replaced by a generated one.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+
+  public static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+
+  public static final String CORRELATION_ID_KEY = "correlationId";
+
+  private static final Pattern VALID_CORRELATION_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    String correlationId = request.getHeader(CORRELATION_ID_HEADER);
+    if (correlationId == null || !VALID_CORRELATION_ID.matcher(correlationId).matches()) {
+      correlationId = UUID.randomUUID().toString();
+    }
+    MDC.put(CORRELATION_ID_KEY, correlationId);
+    response.setHeader(CORRELATION_ID_HEADER, correlationId);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      MDC.remove(CORRELATION_ID_KEY);
+    }
+  }
+}
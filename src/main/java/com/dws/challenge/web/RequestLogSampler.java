@@ -0,0 +1,62 @@
+package com.dws.challenge.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Decides per endpoint whether a request level log line should be written.
+  Every n-th request is sampled and the sampled lines are capped per second,
+  so a burst of traffic cannot turn logging into the bottleneck.
+ */
+@Component
+public class RequestLogSampler {
+
+  private final boolean enabled;
+
+  private final int sampleRate;
+
+  private final int maxPerSecond;
+
+  private final Map<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+  public RequestLogSampler(@Value("${accounts.logging.request.enabled:true}") boolean enabled,
+                           @Value("${accounts.logging.request.sample-rate:1}") int sampleRate,
+                           @Value("${accounts.logging.request.max-per-second:100}") int maxPerSecond) {
+    this.enabled = enabled;
+    this.sampleRate = Math.max(1, sampleRate);
+    this.maxPerSecond = maxPerSecond;
+  }
+
+  public boolean shouldLog(String endpoint) {
+    if (!enabled) {
+      return false;
+    }
+    EndpointState state = endpoints.computeIfAbsent(endpoint, k -> new EndpointState());
+    if (sampleRate > 1 && state.requests.getAndIncrement() % sampleRate != 0) {
+      return false;
+    }
+    return maxPerSecond <= 0 || state.tryAcquire(maxPerSecond);
+  }
+
+  private static final class EndpointState {
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong window = new AtomicLong();
+
+    private final AtomicLong logged = new AtomicLong();
+
+    private boolean tryAcquire(int maxPerSecond) {
+      long currentWindow = System.nanoTime() / 1_000_000_000L;
+      long previousWindow = window.get();
+      if (currentWindow != previousWindow && window.compareAndSet(previousWindow, currentWindow)) {
+        logged.set(0);
+      }
+      return logged.incrementAndGet() <= maxPerSecond;
+    }
+  }
+}
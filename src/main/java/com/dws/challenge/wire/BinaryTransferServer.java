@@ -0,0 +1,264 @@
+package com.dws.challenge.wire;
+
+import com.dws.challenge.domain.TransactionDetails;
+import com.dws.challenge.exception.MalformedFrameException;
+import com.dws.challenge.service.AccountsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+  Internal transport for high volume transfer clients. Requests are framed with
+  TransferFrameCodec and may be pipelined: every complete frame in a read is
+  executed against AccountsService and answered in order on the same connection.
+
+  The selector thread only does I/O and framing. The decoded frames of a connection are
+  handed to the worker pool as one batch, and the connection is not read again until the
+  batch is answered, so a slow transfer (lock contention, tiered storage faults) never
+  stalls the other connections and responses keep the request order.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "accounts.wire.enabled", havingValue = "true")
+public class BinaryTransferServer {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final AccountsService accountsService;
+
+  private final String host;
+
+  private final int port;
+
+  private final int workerThreads;
+
+  // connections whose batch the workers have answered, picked up by the selector thread
+  private final Queue<SelectionKey> answered = new ConcurrentLinkedQueue<>();
+
+  private Selector selector;
+
+  private ServerSocketChannel serverChannel;
+
+  private ExecutorService workers;
+
+  public BinaryTransferServer(AccountsService accountsService,
+                              @Value("${accounts.wire.host:127.0.0.1}") String host,
+                              @Value("${accounts.wire.port:18081}") int port,
+                              @Value("${accounts.wire.worker-threads:4}") int workerThreads) {
+    this.accountsService = accountsService;
+    this.host = host;
+    this.port = port;
+    this.workerThreads = workerThreads;
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(host, port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+    AtomicInteger workerCount = new AtomicInteger();
+    ThreadFactory workerFactory = runnable -> {
+      Thread worker = new Thread(runnable, "binary-transfer-worker-" + workerCount.incrementAndGet());
+      worker.setDaemon(true);
+      return worker;
+    };
+    workers = Executors.newFixedThreadPool(workerThreads, workerFactory);
+
+    Thread selectorThread = new Thread(this::run, "binary-transfer-server");
+    selectorThread.setDaemon(true);
+    selectorThread.start();
+    log.info("Binary transfer server listening on {}", serverChannel.getLocalAddress());
+  }
+
+  @PreDestroy
+  public void stop() throws IOException {
+    selector.close();
+    serverChannel.close();
+    workers.shutdownNow();
+  }
+
+  public int getLocalPort() throws IOException {
+    return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+  }
+
+  private void run() {
+    try {
+      while (selector.isOpen()) {
+        selector.select();
+        resumeAnswered();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (key.isAcceptable()) {
+              accept();
+            } else {
+              if (key.isReadable()) {
+                read(key);
+              }
+              if (key.isValid() && key.isWritable()) {
+                write(key);
+              }
+            }
+          } catch (IOException | MalformedFrameException ex) {
+            log.warn("Closing binary transfer connection: {}", ex.getMessage());
+            close(key);
+          }
+        }
+      }
+    } catch (ClosedSelectorException ex) {
+      // server stopped
+    } catch (IOException ex) {
+      log.error("Binary transfer server stopped unexpectedly", ex);
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    channel.register(selector, SelectionKey.OP_READ, new Connection());
+  }
+
+  private void read(SelectionKey key) throws IOException {
+    SocketChannel channel = (SocketChannel) key.channel();
+    Connection connection = (Connection) key.attachment();
+    if (channel.read(connection.input) < 0) {
+      close(key);
+      return;
+    }
+    drain(key, connection);
+  }
+
+  /*
+    Decodes every complete frame buffered for the connection, as long as there is room
+    for the responses, and hands them to the workers. While the batch is out the
+    connection is neither read nor written: the workers own its output buffer.
+   */
+  private void drain(SelectionKey key, Connection connection) throws IOException {
+    connection.input.flip();
+    List<TransferFrameCodec.TransferRequest> batch = new ArrayList<>();
+    int room = connection.output.remaining() / TransferFrameCodec.MAX_FRAME_LENGTH;
+    TransferFrameCodec.TransferRequest request;
+    while (batch.size() < room && (request = TransferFrameCodec.decodeRequest(connection.input)) != null) {
+      batch.add(request);
+    }
+    connection.input.compact();
+    if (batch.isEmpty()) {
+      flush(key, connection);
+      return;
+    }
+
+    key.interestOps(0);
+    try {
+      workers.execute(() -> {
+        try {
+          for (TransferFrameCodec.TransferRequest pending : batch) {
+            execute(pending, connection.output);
+          }
+        } finally {
+          answered.add(key);
+          selector.wakeup();
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      throw new IOException("Binary transfer server is stopping", ex);
+    }
+  }
+
+  // runs on the selector thread, the workers are done with the output buffers of these connections
+  private void resumeAnswered() {
+    SelectionKey key;
+    while ((key = answered.poll()) != null) {
+      if (!key.isValid()) {
+        continue;
+      }
+      try {
+        write(key);
+      } catch (IOException | MalformedFrameException ex) {
+        log.warn("Closing binary transfer connection: {}", ex.getMessage());
+        close(key);
+      }
+    }
+  }
+
+  private void execute(TransferFrameCodec.TransferRequest request, ByteBuffer output) {
+    TransactionDetails details = request.getDetails();
+    byte status = TransferFrameCodec.STATUS_OK;
+    String message = "Fund Transfer is successful";
+    if (request.getInvalidReason() != null) {
+      status = TransferFrameCodec.STATUS_MALFORMED;
+      message = request.getInvalidReason();
+    } else {
+      try {
+        accountsService.transferFund(details.getFromAccountId(), details.getToAccountId(),
+                details.getTransferAmount());
+      } catch (Exception ex) {
+        status = TransferFrameCodec.STATUS_REJECTED;
+        message = ex.getMessage();
+      }
+    }
+    TransferFrameCodec.encodeResponse(output, request.getRequestId(), status, message);
+  }
+
+  private void write(SelectionKey key) throws IOException {
+    Connection connection = (Connection) key.attachment();
+    flush(key, connection);
+    if (connection.output.position() == 0) {
+      drain(key, connection);
+    }
+  }
+
+  private void flush(SelectionKey key, Connection connection) throws IOException {
+    connection.output.flip();
+    ((SocketChannel) key.channel()).write(connection.output);
+    connection.output.compact();
+    // stop reading while responses are backed up, the client is not keeping up
+    key.interestOps(connection.output.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+  }
+
+  private void close(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException ex) {
+      log.debug("Failed to close binary transfer connection", ex);
+    }
+  }
+
+  private static final class Connection {
+
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+}
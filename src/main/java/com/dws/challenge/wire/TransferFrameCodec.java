@@ -0,0 +1,205 @@
+package com.dws.challenge.wire;
+
+import com.dws.challenge.domain.TransactionDetails;
+import com.dws.challenge.exception.MalformedFrameException;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+  Length prefixed binary frames for the internal transfer protocol.
+
+  Request:  int frameLength | long requestId | short fromLength | from (UTF-8)
+            | short toLength | to (UTF-8) | int amountScale | byte unscaledLength | unscaled (two's complement)
+  Response: int frameLength | long requestId | byte status | short messageLength | message (UTF-8)
+
+  frameLength counts the bytes following the length field itself.
+
+  Amounts are bounded to a scale of 0..MAX_AMOUNT_SCALE and MAX_AMOUNT_UNSCALED_BYTES of unscaled
+  value: BigDecimal arithmetic cost grows with the scale, so a single frame with a huge scale
+  would otherwise stall the server while it holds the account locks.
+ */
+public final class TransferFrameCodec {
+
+  public static final int MAX_FRAME_LENGTH = 1024;
+
+  public static final int MAX_MESSAGE_LENGTH = 256;
+
+  public static final int MAX_AMOUNT_SCALE = 8;
+
+  public static final int MAX_AMOUNT_UNSCALED_BYTES = 16;
+
+  public static final byte STATUS_OK = 0;
+
+  public static final byte STATUS_REJECTED = 1;
+
+  public static final byte STATUS_MALFORMED = 2;
+
+  private TransferFrameCodec() {
+  }
+
+  /*
+    Decodes the next request frame in place, leaving the buffer positioned after it.
+    Returns null and keeps the position unchanged when the frame is not complete yet.
+    A well formed frame carrying an invalid amount is returned with getInvalidReason() set,
+    so it can be answered with STATUS_MALFORMED instead of dropping the connection.
+   */
+  public static TransferRequest decodeRequest(ByteBuffer buffer) {
+    if (buffer.remaining() < Integer.BYTES) {
+      return null;
+    }
+    int start = buffer.position();
+    int frameLength = buffer.getInt(start);
+    if (frameLength < 0 || frameLength > MAX_FRAME_LENGTH) {
+      throw new MalformedFrameException("Frame length " + frameLength + " is out of range");
+    }
+    if (buffer.remaining() < Integer.BYTES + frameLength) {
+      return null;
+    }
+    int end = start + Integer.BYTES + frameLength;
+    buffer.position(start + Integer.BYTES);
+    try {
+      if (frameLength < Long.BYTES) {
+        throw new MalformedFrameException("Frame too short for a request id");
+      }
+      long requestId = buffer.getLong();
+      TransactionDetails details = new TransactionDetails();
+      details.setFromAccountId(readString(buffer, end));
+      details.setToAccountId(readString(buffer, end));
+      if (buffer.position() + Integer.BYTES + 1 > end) {
+        throw new MalformedFrameException("Missing transfer amount in request " + requestId);
+      }
+      int scale = buffer.getInt();
+      int unscaledLength = buffer.get();
+      if (unscaledLength <= 0 || buffer.position() + unscaledLength > end) {
+        throw new MalformedFrameException("Invalid transfer amount in request " + requestId);
+      }
+      if (scale < 0 || scale > MAX_AMOUNT_SCALE || unscaledLength > MAX_AMOUNT_UNSCALED_BYTES) {
+        return new TransferRequest(requestId, details, "transferAmount must have a scale between 0 and "
+                + MAX_AMOUNT_SCALE + " and at most " + MAX_AMOUNT_UNSCALED_BYTES + " bytes of unscaled value");
+      }
+      byte[] unscaled = new byte[unscaledLength];
+      buffer.get(unscaled);
+      details.setTransferAmount(new BigDecimal(new BigInteger(unscaled), scale));
+      if (details.getTransferAmount().signum() <= 0) {
+        return new TransferRequest(requestId, details, "transferAmount must always be positive");
+      }
+      return new TransferRequest(requestId, details, null);
+    } catch (BufferUnderflowException e) {
+      throw new MalformedFrameException("Truncated frame");
+    } finally {
+      buffer.position(end);
+    }
+  }
+
+  /*
+    Amounts with a negative scale (e.g. 1E+3) are sent with scale 0; other out of range
+    amounts are sent as they are and answered with STATUS_MALFORMED.
+   */
+  public static void encodeRequest(ByteBuffer buffer, long requestId, TransactionDetails details) {
+    byte[] from = details.getFromAccountId().getBytes(StandardCharsets.UTF_8);
+    byte[] to = details.getToAccountId().getBytes(StandardCharsets.UTF_8);
+    BigDecimal amount = details.getTransferAmount();
+    if (amount.scale() < 0) {
+      amount = amount.setScale(0);
+    }
+    byte[] unscaled = amount.unscaledValue().toByteArray();
+    int frameLength = Long.BYTES + Short.BYTES + from.length + Short.BYTES + to.length
+            + Integer.BYTES + 1 + unscaled.length;
+    buffer.putInt(frameLength)
+            .putLong(requestId)
+            .putShort((short) from.length).put(from)
+            .putShort((short) to.length).put(to)
+            .putInt(amount.scale())
+            .put((byte) unscaled.length).put(unscaled);
+  }
+
+  /*
+    Messages are cut to MAX_MESSAGE_LENGTH characters so a response always fits into MAX_FRAME_LENGTH.
+   */
+  public static void encodeResponse(ByteBuffer buffer, long requestId, byte status, String message) {
+    String text = message == null ? "" : message;
+    if (text.length() > MAX_MESSAGE_LENGTH) {
+      text = text.substring(0, MAX_MESSAGE_LENGTH);
+    }
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(Long.BYTES + 1 + Short.BYTES + bytes.length)
+            .putLong(requestId)
+            .put(status)
+            .putShort((short) bytes.length)
+            .put(bytes);
+  }
+
+  /*
+    Decodes the next response frame, or returns null when it is not complete yet.
+   */
+  public static TransferResponse decodeResponse(ByteBuffer buffer) {
+    if (buffer.remaining() < Integer.BYTES
+            || buffer.remaining() < Integer.BYTES + buffer.getInt(buffer.position())) {
+      return null;
+    }
+    buffer.getInt();
+    long requestId = buffer.getLong();
+    byte status = buffer.get();
+    byte[] message = new byte[buffer.getShort()];
+    buffer.get(message);
+    return new TransferResponse(requestId, status, new String(message, StandardCharsets.UTF_8));
+  }
+
+  private static String readString(ByteBuffer buffer, int end) {
+    if (buffer.position() + Short.BYTES > end) {
+      throw new MalformedFrameException("Truncated frame");
+    }
+    int length = buffer.getShort();
+    if (length < 0 || buffer.position() + length > end) {
+      throw new MalformedFrameException("Invalid string length " + length);
+    }
+    String value;
+    if (buffer.hasArray()) {
+      value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+    } else {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+
+  @Getter
+  public static final class TransferRequest {
+
+    private final long requestId;
+
+    private final TransactionDetails details;
+
+    // why the request cannot be executed although the frame is well formed, null when valid
+    private final String invalidReason;
+
+    TransferRequest(long requestId, TransactionDetails details, String invalidReason) {
+      this.requestId = requestId;
+      this.details = details;
+      this.invalidReason = invalidReason;
+    }
+  }
+
+  @Getter
+  public static final class TransferResponse {
+
+    private final long requestId;
+
+    private final byte status;
+
+    private final String message;
+
+    TransferResponse(long requestId, byte status, String message) {
+      this.requestId = requestId;
+      this.status = status;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.repository.AccountsRepositoryTiered;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.stress.StressReport;
+import com.dws.challenge.stress.TransferStressHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class AccountsRepositoryTieredTest {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountsRepositoryTieredTest.class);
+
+  private static final int HOT_ACCOUNTS = 100;
+
+  @TempDir
+  Path tempDir;
+
+  private AccountsRepositoryTiered accountsRepository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    accountsRepository = new AccountsRepositoryTiered(tempDir.resolve("cold.dat").toString(), 300_000,
+            HOT_ACCOUNTS * 256L, 2);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    accountsRepository.close();
+  }
+
+  @Test
+  void addAccount_failsOnDuplicateId() {
+    accountsRepository.createAccount(new Account("Id-123", new BigDecimal("1000.25")));
+
+    assertThrows(DuplicateAccountIdException.class,
+            () -> accountsRepository.createAccount(new Account("Id-123", new BigDecimal("5"))));
+    assertThat(accountsRepository.getAccount("Id-123").getBalance()).isEqualByComparingTo("1000.25");
+    assertThat(accountsRepository.getAccount("Id-unknown")).isNull();
+  }
+
+  /*
+    junit to cover accounts evicted from the hot set being faulted back from the cold store
+  */
+  @Test
+  void shouldKeepHotSetWithinBudgetAndFaultColdAccountsBackIn() throws InterruptedException {
+    for (int i = 0; i < 1000; i++) {
+      accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+    }
+    for (int attempt = 0; attempt < 100 && accountsRepository.getHotAccountCount() > HOT_ACCOUNTS; attempt++) {
+      Thread.sleep(10);
+    }
+    assertThat(accountsRepository.getHotAccountCount()).isLessThanOrEqualTo(HOT_ACCOUNTS);
+    assertThat(accountsRepository.getColdAccountCount()).isEqualTo(1000);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(accountsRepository.getAccount("Id-" + i).getBalance()).isEqualByComparingTo(new BigDecimal(i));
+    }
+    assertThat(accountsRepository.getFaults()).isPositive();
+
+    AtomicInteger visited = new AtomicInteger();
+    accountsRepository.forEachAccount(account -> visited.incrementAndGet());
+    assertThat(visited.get()).isEqualTo(1000);
+  }
+
+  /*
+    junit to cover balance updates made through an instance that was evicted in the meantime
+  */
+  @Test
+  void shouldNotLoseUpdatesMadeThroughEvictedInstance() throws InterruptedException {
+    accountsRepository.createAccount(new Account("Id-held", new BigDecimal("100")));
+    Account held = accountsRepository.getAccount("Id-held");
+    for (int i = 0; i < 1000; i++) {
+      accountsRepository.createAccount(new Account("Id-" + i, BigDecimal.ONE));
+      accountsRepository.getAccount("Id-" + i);
+    }
+    for (int attempt = 0; attempt < 100 && accountsRepository.getHotAccountCount() > HOT_ACCOUNTS; attempt++) {
+      Thread.sleep(10);
+    }
+
+    held.withdraw(new BigDecimal("40"));
+
+    assertThat(accountsRepository.getAccount("Id-held").getBalance()).isEqualByComparingTo("60");
+  }
+
+  @Test
+  void shouldStayConsistentUnderConcurrentTransfersWithSmallHotSet() throws InterruptedException {
+    TransferStressHarness harness = TransferStressHarness.fromSystemProperties(2000, 8, 100_000);
+
+    StressReport report = harness.run(new AccountsService(accountsRepository));
+
+    log.info("Tiered engine: {} faults={} evictions={}", report, accountsRepository.getFaults(),
+            accountsRepository.getEvictions());
+    assertThat(report.getViolations()).as("Tiered engine: %s", report).isEmpty();
+    assertThat(accountsRepository.getEvictions()).isPositive();
+  }
+
+  /*
+    junit to make sure a transfer whose resulting balance the cold store cannot encode
+    changes neither tier, whichever side of the transfer fails
+   */
+  @Test
+  void shouldLeaveBothTiersUnchangedWhenBalanceCannotBeStored() {
+    AccountsService accountsService = new AccountsService(accountsRepository);
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("1000.00")));
+    accountsService.createAccount(new Account("Id-2", new BigDecimal("1000.00")));
+    accountsService.createAccount(new Account("Id-tiny", new BigDecimal("1E-70")));
+    accountsService.createAccount(new Account("Id-large", new BigDecimal("1E+20")));
+
+    // the debtor's new balance needs more than 32 bytes of unscaled value
+    assertThrows(ArithmeticException.class,
+            () -> accountsService.transferFund("Id-1", "Id-2", new BigDecimal("1E-80")));
+    // the debtor's new balance fits, the creditor's does not
+    assertThrows(ArithmeticException.class,
+            () -> accountsService.transferFund("Id-tiny", "Id-large", new BigDecimal("1E-70")));
+
+    Map<String, BigDecimal> cold = new HashMap<>();
+    accountsRepository.forEachAccount(account -> cold.put(account.getAccountId(), account.getBalance()));
+    assertThat(cold).containsEntry("Id-1", new BigDecimal("1000.00"))
+            .containsEntry("Id-2", new BigDecimal("1000.00"))
+            .containsEntry("Id-tiny", new BigDecimal("1E-70"))
+            .containsEntry("Id-large", new BigDecimal("1E+20"));
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualTo(new BigDecimal("1000.00"));
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualTo(new BigDecimal("1000.00"));
+    assertThat(accountsService.getAccount("Id-tiny").getBalance()).isEqualTo(new BigDecimal("1E-70"));
+    assertThat(accountsService.getAccount("Id-large").getBalance()).isEqualTo(new BigDecimal("1E+20"));
+  }
+
+  /*
+    junit to make sure the cold store grows past its capacity instead of rejecting accounts
+   */
+  @Test
+  void shouldGrowColdStoreBeyondItsCapacity() throws Exception {
+    AccountsRepositoryTiered smallRepository = new AccountsRepositoryTiered(tempDir.resolve("small.dat").toString(),
+            16, HOT_ACCOUNTS * 256L, 2);
+    try {
+      for (int i = 0; i < 5000; i++) {
+        smallRepository.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+      }
+      assertThrows(DuplicateAccountIdException.class,
+              () -> smallRepository.createAccount(new Account("Id-7", BigDecimal.ONE)));
+
+      assertThat(smallRepository.getColdAccountCount()).isEqualTo(5000);
+      for (int i = 0; i < 5000; i++) {
+        assertThat(smallRepository.getAccount("Id-" + i).getBalance()).isEqualByComparingTo(new BigDecimal(i));
+      }
+      AtomicInteger visited = new AtomicInteger();
+      smallRepository.forEachAccount(account -> visited.incrementAndGet());
+      assertThat(visited.get()).isEqualTo(5000);
+    } finally {
+      smallRepository.close();
+    }
+  }
+
+  /*
+    junit to make sure accounts that do not fit a cold store slot are stored like any other
+   */
+  @Test
+  void shouldStoreAccountsThatDoNotFitASlot() {
+    AccountsService accountsService = new AccountsService(accountsRepository);
+    String longId = "Id-" + "x".repeat(100);
+    BigDecimal huge = new BigDecimal("1" + "0".repeat(100));
+    accountsService.createAccount(new Account(longId, new BigDecimal("1000")));
+    accountsService.createAccount(new Account("Id-huge", huge));
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+
+    assertThrows(DuplicateAccountIdException.class,
+            () -> accountsService.createAccount(new Account(longId, BigDecimal.ONE)));
+    accountsService.transferFund(longId, "Id-huge", new BigDecimal("250"));
+    accountsService.transferFund("Id-huge", "Id-1", new BigDecimal("1"));
+
+    Map<String, BigDecimal> cold = new HashMap<>();
+    accountsRepository.forEachAccount(account -> cold.put(account.getAccountId(), account.getBalance()));
+    assertThat(cold).hasSize(3);
+    assertThat(cold.get(longId)).isEqualByComparingTo("750");
+    assertThat(cold.get("Id-huge")).isEqualByComparingTo(huge.add(new BigDecimal("249")));
+    assertThat(cold.get("Id-1")).isEqualByComparingTo("1001");
+  }
+
+  /*
+    junit to cover prefetching two evicted accounts before they are read
+   */
+  @Test
+  void shouldPrefetchBothAccountsOfATransfer() throws InterruptedException {
+    for (int i = 0; i < 1000; i++) {
+      accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+    }
+    for (int attempt = 0; attempt < 100 && accountsRepository.getHotAccountCount() > HOT_ACCOUNTS; attempt++) {
+      Thread.sleep(10);
+    }
+    long faultsBefore = accountsRepository.getFaults();
+    long hitsBefore = accountsRepository.getHits();
+
+    // the first accounts created are the first evicted, both missing
+    accountsRepository.prefetch("Id-0", "Id-1");
+    accountsRepository.prefetch("Id-unknown", "Id-missing");
+
+    assertThat(accountsRepository.getFaults()).isEqualTo(faultsBefore + 2);
+    assertThat(accountsRepository.getAccount("Id-0").getBalance()).isEqualByComparingTo("0");
+    assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("1");
+    assertThat(accountsRepository.getHits()).isEqualTo(hitsBefore + 2);
+  }
+}
@@ -0,0 +1,55 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.stress.StressReport;
+import com.dws.challenge.stress.TransferStressHarness;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class AccountsServiceStressTest {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountsServiceStressTest.class);
+
+  /*
+    randomized concurrent transfers, creates and reads against the in memory engine,
+    sized up with -Dstress.operations / -Dstress.threads / -Dstress.accounts
+  */
+  @Test
+  void shouldKeepBalancesAndReadsConsistentUnderConcurrentLoad() throws InterruptedException {
+    TransferStressHarness harness = TransferStressHarness.fromSystemProperties(64, 8, 200_000);
+
+    StressReport report = harness.run(new AccountsService(new AccountsRepositoryInMemory()));
+
+    log.info("In memory engine: {}", report);
+    assertThat(report.getViolations()).as("In memory engine: %s", report).isEmpty();
+    assertThat(report.getCheckedReads()).isPositive();
+  }
+
+  /*
+    junit to make sure the harness catches an engine that creates money
+  */
+  @Test
+  void shouldReportEngineThatCreatesMoney() throws InterruptedException {
+    AtomicLong transfers = new AtomicLong();
+    AccountsService brokenService = new AccountsService(new AccountsRepositoryInMemory()) {
+      @Override
+      public void transferFund(String debtorAccountId, String creditorAccountId, BigDecimal amountToTransfer) {
+        super.transferFund(debtorAccountId, creditorAccountId, amountToTransfer);
+        if (transfers.incrementAndGet() % 1000 == 0) {
+          getAccount(creditorAccountId).deposit(new BigDecimal("0.01"));
+        }
+      }
+    };
+
+    StressReport report = new TransferStressHarness(16, 4, 20_000, 42).run(brokenService);
+
+    assertThat(report.getViolations()).isNotEmpty();
+  }
+}
@@ -15,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
 import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsLedger;
 import com.dws.challenge.service.AccountsService;
 import com.dws.challenge.service.EmailNotificationService;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +26,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
@@ -34,6 +37,9 @@ class AccountsServiceTest {
 
   private AccountsService accountsService;
 
+  @Autowired
+  private ApplicationContext applicationContext;
+
   @Mock
   private EmailNotificationService emailNotificationService;
 
@@ -308,4 +314,16 @@ class AccountsServiceTest {
     assertEquals(new BigDecimal(600), debtorAccount3.getBalance());
     assertEquals(new BigDecimal(1400), creditorAccount3.getBalance());
   }
+
+  /*
+    junit to make sure transfers skip the ledger while the auditor is off (the default)
+   */
+  @Test
+  void shouldUseRepositoryWithoutLedgerWhenAuditIsOff() {
+    AccountsService wiredService = applicationContext.getBean(AccountsService.class);
+
+    assertThat(applicationContext.getBeansOfType(AccountsLedger.class)).isEmpty();
+    assertThat(wiredService.getLedger()).isNull();
+    assertThat(accountsService.getAccountsRepository()).isSameAs(accountsRepository);
+  }
 }
@@ -0,0 +1,183 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransactionDetails;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.wire.BinaryTransferServer;
+import com.dws.challenge.wire.TransferFrameCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BinaryTransferServerTest {
+
+  private AccountsService accountsService;
+
+  private BinaryTransferServer server;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    accountsService = new AccountsService(new AccountsRepositoryInMemory());
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+    accountsService.createAccount(new Account("Id-2", new BigDecimal("1000")));
+
+    server = startServer(accountsService);
+  }
+
+  @AfterEach
+  void stopServer() throws Exception {
+    server.stop();
+  }
+
+  private static BinaryTransferServer startServer(AccountsService accountsService) throws Exception {
+    BinaryTransferServer binaryTransferServer = new BinaryTransferServer(accountsService, "127.0.0.1", 0, 2);
+    binaryTransferServer.start();
+    return binaryTransferServer;
+  }
+
+  /*
+    junit to cover pipelined transfers answered in order over a single connection
+   */
+  @Test
+  void shouldAnswerPipelinedTransfersInOrder() throws Exception {
+    ByteBuffer request = ByteBuffer.allocate(4096);
+    TransferFrameCodec.encodeRequest(request, 1, transfer("Id-1", "Id-2", "100.50"));
+    TransferFrameCodec.encodeRequest(request, 2, transfer("Id-2", "Id-1", "50"));
+    TransferFrameCodec.encodeRequest(request, 3, transfer("Id-1", "Id-2", "5000"));
+    TransferFrameCodec.encodeRequest(request, 4, transfer("Id-1", "Id-2", "-1"));
+    request.flip();
+
+    List<TransferFrameCodec.TransferResponse> responses;
+    try (SocketChannel channel = connect(server)) {
+      responses = exchange(channel, request, 4);
+    }
+
+    assertThat(responses).extracting(TransferFrameCodec.TransferResponse::getRequestId)
+            .containsExactly(1L, 2L, 3L, 4L);
+    assertThat(responses).extracting(TransferFrameCodec.TransferResponse::getStatus)
+            .containsExactly(TransferFrameCodec.STATUS_OK, TransferFrameCodec.STATUS_OK,
+                    TransferFrameCodec.STATUS_REJECTED, TransferFrameCodec.STATUS_MALFORMED);
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("949.50");
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("1050.50");
+  }
+
+  /*
+    junit to make sure an amount with a huge scale is rejected up front instead of being
+    applied, and that the connection stays usable
+   */
+  @Test
+  void shouldRejectAmountWithUnboundedScaleAndKeepConnection() throws Exception {
+    ByteBuffer request = ByteBuffer.allocate(4096);
+    TransferFrameCodec.encodeRequest(request, 1,
+            transfer("Id-1", "Id-2", new BigDecimal(BigInteger.ONE, 100_000_000)));
+    TransferFrameCodec.encodeRequest(request, 2,
+            transfer("Id-1", "Id-2", new BigDecimal(BigInteger.TEN.pow(60), 2)));
+    TransferFrameCodec.encodeRequest(request, 3, transfer("Id-1", "Id-2", "1E+1"));
+    request.flip();
+
+    List<TransferFrameCodec.TransferResponse> responses;
+    try (SocketChannel channel = connect(server)) {
+      responses = exchange(channel, request, 3);
+    }
+
+    assertThat(responses).extracting(TransferFrameCodec.TransferResponse::getStatus)
+            .containsExactly(TransferFrameCodec.STATUS_MALFORMED, TransferFrameCodec.STATUS_MALFORMED,
+                    TransferFrameCodec.STATUS_OK);
+    assertThat(responses.get(0).getMessage()).contains("scale");
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("990");
+    assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("1010");
+  }
+
+  /*
+    junit to make sure a connection stuck in a slow transfer does not hold up the others
+   */
+  @Test
+  void shouldServeOtherConnectionsWhileTransferIsBlocked() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AccountsService slowService = new AccountsService(new AccountsRepositoryInMemory()) {
+      @Override
+      public void transferFund(String debtorAccountId, String creditorAccountId, BigDecimal amountToTransfer) {
+        if ("Slow".equals(debtorAccountId)) {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        super.transferFund(debtorAccountId, creditorAccountId, amountToTransfer);
+      }
+    };
+    slowService.createAccount(new Account("Slow", new BigDecimal("100")));
+    slowService.createAccount(new Account("Id-1", new BigDecimal("100")));
+    slowService.createAccount(new Account("Id-2", new BigDecimal("100")));
+    BinaryTransferServer slowServer = startServer(slowService);
+
+    try (SocketChannel blocked = connect(slowServer); SocketChannel other = connect(slowServer)) {
+      ByteBuffer slowRequest = ByteBuffer.allocate(256);
+      TransferFrameCodec.encodeRequest(slowRequest, 1, transfer("Slow", "Id-1", "10"));
+      slowRequest.flip();
+      blocked.write(slowRequest);
+
+      ByteBuffer request = ByteBuffer.allocate(256);
+      TransferFrameCodec.encodeRequest(request, 2, transfer("Id-1", "Id-2", "10"));
+      request.flip();
+      assertThat(exchange(other, request, 1)).extracting(TransferFrameCodec.TransferResponse::getStatus)
+              .containsExactly(TransferFrameCodec.STATUS_OK);
+
+      release.countDown();
+      assertThat(exchange(blocked, ByteBuffer.allocate(0), 1))
+              .extracting(TransferFrameCodec.TransferResponse::getRequestId).containsExactly(1L);
+    } finally {
+      release.countDown();
+      slowServer.stop();
+    }
+    assertThat(slowService.getAccount("Slow").getBalance()).isEqualByComparingTo("90");
+    assertThat(slowService.getAccount("Id-2").getBalance()).isEqualByComparingTo("110");
+  }
+
+  private static SocketChannel connect(BinaryTransferServer binaryTransferServer) throws Exception {
+    return SocketChannel.open(new InetSocketAddress("127.0.0.1", binaryTransferServer.getLocalPort()));
+  }
+
+  private static List<TransferFrameCodec.TransferResponse> exchange(SocketChannel channel, ByteBuffer request,
+                                                                    int expected) throws Exception {
+    while (request.hasRemaining()) {
+      channel.write(request);
+    }
+    List<TransferFrameCodec.TransferResponse> responses = new ArrayList<>();
+    ByteBuffer response = ByteBuffer.allocate(4096);
+    while (responses.size() < expected && channel.read(response) >= 0) {
+      response.flip();
+      TransferFrameCodec.TransferResponse decoded;
+      while ((decoded = TransferFrameCodec.decodeResponse(response)) != null) {
+        responses.add(decoded);
+      }
+      response.compact();
+    }
+    return responses;
+  }
+
+  private static TransactionDetails transfer(String from, String to, String amount) {
+    return transfer(from, to, new BigDecimal(amount));
+  }
+
+  private static TransactionDetails transfer(String from, String to, BigDecimal amount) {
+    TransactionDetails details = new TransactionDetails();
+    details.setFromAccountId(from);
+    details.setToAccountId(to);
+    details.setTransferAmount(amount);
+    return details;
+  }
+}
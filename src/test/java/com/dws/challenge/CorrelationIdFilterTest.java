@@ -0,0 +1,56 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dws.challenge.web.CorrelationIdFilter;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CorrelationIdFilterTest {
+
+  private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+  @Test
+  void shouldKeepCallerSuppliedCorrelationId() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(CorrelationIdFilter.CORRELATION_ID_HEADER, "order-42.retry_1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertThat(correlationIdInRequest(request, response)).isEqualTo("order-42.retry_1");
+    assertThat(response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER)).isEqualTo("order-42.retry_1");
+  }
+
+  /*
+    junit to make sure a header cannot add fields to the structured log line
+   */
+  @Test
+  void shouldReplaceCorrelationIdThatIsNotAPlainToken() throws Exception {
+    for (String forged : new String[]{"x level=ERROR msg=\"forged\"", "a\nb", "", "x".repeat(65)}) {
+      MockHttpServletRequest request = new MockHttpServletRequest();
+      request.addHeader(CorrelationIdFilter.CORRELATION_ID_HEADER, forged);
+      MockHttpServletResponse response = new MockHttpServletResponse();
+
+      String correlationId = correlationIdInRequest(request, response);
+      assertThat(correlationId).isNotEqualTo(forged).matches("[0-9a-f-]{36}");
+      assertThat(response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER)).isEqualTo(correlationId);
+    }
+  }
+
+  private String correlationIdInRequest(MockHttpServletRequest request, MockHttpServletResponse response)
+          throws Exception {
+    AtomicReference<String> seen = new AtomicReference<>();
+    filter.doFilter(request, response, new MockFilterChain() {
+      @Override
+      public void doFilter(javax.servlet.ServletRequest req, javax.servlet.ServletResponse res) {
+        seen.set(MDC.get(CorrelationIdFilter.CORRELATION_ID_KEY));
+      }
+    });
+    assertThat(MDC.get(CorrelationIdFilter.CORRELATION_ID_KEY)).isNull();
+    return seen.get();
+  }
+}
@@ -0,0 +1,36 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.startup.TransferPathWarmer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"accounts.startup.warmup.transfers=1000", "accounts.startup.warmup.requests=100"})
+@ActiveProfiles("faststart")
+class FastStartProfileTest {
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  @Autowired
+  private ApplicationAvailability applicationAvailability;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Test
+  void shouldWarmUpWithoutTouchingLiveAccountsBeforeAcceptingTraffic() {
+    assertThat(applicationContext.getBeansOfType(TransferPathWarmer.class)).hasSize(1);
+    assertThat(applicationAvailability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    assertThat(accountsService.getAccount("Warmup-0")).isNull();
+    assertThat(accountsService.getAccount("Warmup-missing-0")).isNull();
+  }
+}
@@ -0,0 +1,32 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dws.challenge.repository.AccountsRepositoryTiered;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"accounts.storage.type=tiered", "accounts.storage.tiered.capacity=1024",
+                "accounts.startup.warmup.transfers=1000", "accounts.startup.warmup.requests=100"})
+@ActiveProfiles("faststart")
+class FastStartTieredProfileTest {
+
+  @Autowired
+  private AccountsRepositoryTiered accountsRepository;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  /*
+    junit to make sure the warm-up against a scratch tiered store leaves the live one empty
+   */
+  @Test
+  void shouldWarmUpTieredStoreWithoutTouchingLiveAccounts() {
+    assertThat(accountsRepository.getColdAccountCount()).isZero();
+    assertThat(accountsService.getAccount("Warmup-0")).isNull();
+  }
+}
@@ -0,0 +1,174 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dws.challenge.audit.AuditReport;
+import com.dws.challenge.audit.InvariantAuditor;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsLedger;
+import com.dws.challenge.service.AccountsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvariantAuditorTest {
+
+  private AccountsService accountsService;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private InvariantAuditor auditor;
+
+  @BeforeEach
+  void setUp() {
+    accountsService = new AccountsService(new AccountsRepositoryInMemory(), null, new AccountsLedger());
+    meterRegistry = new SimpleMeterRegistry();
+    auditor = new InvariantAuditor(accountsService, meterRegistry, 1000, 1.0, 100);
+    for (int i = 0; i < 10; i++) {
+      accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+    }
+  }
+
+  @Test
+  void shouldReportCleanPassAfterTransfers() {
+    accountsService.transferFund("Id-1", "Id-2", new BigDecimal("250.25"));
+
+    AuditReport report = auditor.auditOnce();
+
+    assertThat(report.getAccountsScanned()).isEqualTo(10);
+    assertThat(report.isConservationChecked()).isTrue();
+    assertThat(report.isConservationViolated()).isFalse();
+    assertThat(report.getNegativeBalanceAccountIds()).isEmpty();
+    assertThat(meterRegistry.get("accounts.audit.passes").tag("result", "clean").counter().count())
+            .isEqualTo(1);
+  }
+
+  @Test
+  void shouldReportMoneyCreatedOutsideTransfers() {
+    accountsService.getAccount("Id-3").deposit(new BigDecimal("10"));
+    accountsService.getAccount("Id-4").setBalance(new BigDecimal("-5"));
+
+    AuditReport report = auditor.auditOnce();
+
+    assertThat(report.isConservationViolated()).isTrue();
+    assertThat(report.getDrift()).isEqualByComparingTo("-995");
+    assertThat(report.getNegativeBalanceAccountIds()).containsExactly("Id-4");
+    assertThat(meterRegistry.get("accounts.audit.violations").tag("invariant", "conservation").counter().count())
+            .isEqualTo(1);
+    assertThat(meterRegistry.get("accounts.audit.negative.balances").gauge().value()).isEqualTo(1);
+  }
+
+  /*
+    junit to cover auditing while transfers keep running, no pass may report a violation
+   */
+  @Test
+  void shouldNotReportViolationsWhileTransfersAreRunning() throws InterruptedException {
+    AtomicBoolean transferring = new AtomicBoolean(true);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      executorService.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (transferring.get()) {
+          int from = random.nextInt(10);
+          int to = (from + 1 + random.nextInt(9)) % 10;
+          try {
+            accountsService.transferFund("Id-" + from, "Id-" + to, BigDecimal.valueOf(random.nextInt(1, 100)));
+          } catch (RuntimeException insufficientBalance) {
+            // expected once an account runs dry
+          }
+        }
+      });
+    }
+
+    for (int i = 0; i < 200; i++) {
+      AuditReport report = auditor.auditOnce();
+      assertThat(report.isConservationChecked()).isTrue();
+      assertThat(report.isConservationViolated()).isFalse();
+      assertThat(report.getNegativeBalanceAccountIds()).isEmpty();
+    }
+    transferring.set(false);
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    AuditReport finalReport = auditor.auditOnce();
+    assertThat(finalReport.isConservationChecked()).isTrue();
+    assertThat(finalReport.isConservationViolated()).isFalse();
+  }
+
+  /*
+    junit to make sure throttled passes (5% of a CPU) stay conclusive while transfers and
+    creates overlap every one of them
+   */
+  @Test
+  void shouldCheckConservationOnThrottledPassesUnderLoad() throws InterruptedException {
+    for (int i = 10; i < 5000; i++) {
+      accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+    }
+    InvariantAuditor throttledAuditor = new InvariantAuditor(accountsService, meterRegistry, 1000, 0.05, 500);
+    AtomicBoolean transferring = new AtomicBoolean(true);
+    AtomicLong transfers = new AtomicLong();
+    AtomicLong created = new AtomicLong();
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      int worker = t;
+      executorService.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (transferring.get()) {
+          if (random.nextInt(100) == 0) {
+            accountsService.createAccount(new Account("New-" + worker + "-" + created.incrementAndGet(),
+                    BigDecimal.valueOf(random.nextInt(1, 1000), 2)));
+            continue;
+          }
+          int from = random.nextInt(5000);
+          int to = (from + 1 + random.nextInt(4999)) % 5000;
+          try {
+            accountsService.transferFund("Id-" + from, "Id-" + to, BigDecimal.valueOf(random.nextInt(1, 10000), 2));
+            transfers.incrementAndGet();
+          } catch (RuntimeException insufficientBalance) {
+            // expected once an account runs dry
+          }
+        }
+      });
+    }
+
+    for (int i = 0; i < 5; i++) {
+      long transfersBefore = transfers.get();
+      AuditReport report = throttledAuditor.auditOnce();
+      assertThat(transfers.get()).isGreaterThan(transfersBefore);
+      assertThat(report.isConservationChecked()).isTrue();
+      assertThat(report.isConservationViolated()).isFalse();
+      assertThat(report.getNegativeBalanceAccountIds()).isEmpty();
+    }
+    transferring.set(false);
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(created.get()).isPositive();
+    assertThat(meterRegistry.get("accounts.audit.passes").tag("result", "clean").counter().count())
+            .isEqualTo(5);
+    assertThat(meterRegistry.get("accounts.audit.passes").tag("result", "inconclusive").counter().count())
+            .isZero();
+  }
+
+  @Test
+  void shouldBookCreatesAndClearsMadeThroughTheRepository() {
+    accountsService.getAccountsRepository().createAccount(new Account("Id-10", new BigDecimal("5")));
+    assertThat(auditor.auditOnce().isConservationViolated()).isFalse();
+
+    accountsService.getAccountsRepository().clearAccounts();
+    accountsService.createAccount(new Account("Id-1", new BigDecimal("7")));
+
+    AuditReport report = auditor.auditOnce();
+    assertThat(report.isConservationChecked()).isTrue();
+    assertThat(report.isConservationViolated()).isFalse();
+    assertThat(report.getExpectedTotal()).isEqualByComparingTo("7");
+  }
+}
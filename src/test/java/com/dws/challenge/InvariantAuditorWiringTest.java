@@ -0,0 +1,30 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dws.challenge.audit.InvariantAuditor;
+import com.dws.challenge.service.AccountsLedger;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+@SpringBootTest(properties = {"accounts.audit.enabled=true", "accounts.audit.interval-ms=600000"})
+class InvariantAuditorWiringTest {
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private AccountsLedger ledger;
+
+  @Test
+  void shouldBookTransfersInTheLedgerTheAuditorReads() {
+    assertThat(applicationContext.getBeansOfType(InvariantAuditor.class)).hasSize(1);
+    assertThat(accountsService.getLedger()).isSameAs(ledger);
+  }
+}
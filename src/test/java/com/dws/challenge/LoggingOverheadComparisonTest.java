@@ -0,0 +1,131 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.joran.spi.JoranException;
+import com.dws.challenge.logging.EscapedMessageConverter;
+import com.dws.challenge.logging.EscapedThrowableConverter;
+import com.dws.challenge.logging.LogbackSpringConfig;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.EmailNotificationService;
+import com.dws.challenge.stress.StressReport;
+import com.dws.challenge.stress.TransferStressHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+class LoggingOverheadComparisonTest {
+
+  private static final org.slf4j.Logger log = LoggerFactory.getLogger(LoggingOverheadComparisonTest.class);
+
+  private final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+  private final Logger notificationLogger = loggerContext.getLogger(EmailNotificationService.class);
+
+  private File syncLog;
+
+  private File asyncLog;
+
+  @AfterEach
+  void tearDown() throws IOException {
+    notificationLogger.detachAndStopAllAppenders();
+    notificationLogger.setAdditive(true);
+    notificationLogger.setLevel(null);
+    for (File file : new File[]{syncLog, asyncLog}) {
+      if (file != null) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+  }
+
+  /*
+    the same harness (same seed) run three times, with the two notification lines per transfer switched
+    off, written synchronously and handed to the AsyncAppender; sized with -Dstress.operations etc.
+  */
+  @Test
+  void shouldCompareTransferThroughputWithSyncAndAsyncLogging() throws Exception {
+    syncLog = File.createTempFile("logging-overhead-sync", ".log");
+    asyncLog = File.createTempFile("logging-overhead-async", ".log");
+    TransferStressHarness harness = TransferStressHarness.fromSystemProperties(64, 4, 100_000);
+
+    notificationLogger.setLevel(Level.OFF);
+    StressReport off = runHarness(harness);
+
+    notificationLogger.setLevel(Level.INFO);
+    notificationLogger.setAdditive(false);
+    notificationLogger.addAppender(fileAppender(syncLog));
+    StressReport sync = runHarness(harness);
+
+    notificationLogger.detachAndStopAllAppenders();
+    AsyncAppender async = new AsyncAppender();
+    async.setContext(loggerContext);
+    async.setQueueSize(8192);
+    async.setDiscardingThreshold(0);
+    async.setNeverBlock(true);
+    async.addAppender(fileAppender(asyncLog));
+    async.start();
+    notificationLogger.addAppender(async);
+    StressReport asynchronous = runHarness(harness);
+    // flushes the queue into the file
+    notificationLogger.detachAndStopAllAppenders();
+
+    // neverBlock drops events once the queue is full, so compare what actually reached the file
+    log.info("Notification logging off: {}", off);
+    log.info("Notification logging sync: {} lines={}", sync, lines(syncLog));
+    log.info("Notification logging async: {} lines={}", asynchronous, lines(asyncLog));
+    assertThat(off.getViolations()).isEmpty();
+    assertThat(sync.getViolations()).isEmpty();
+    assertThat(asynchronous.getViolations()).isEmpty();
+    assertThat(lines(syncLog)).isPositive();
+  }
+
+  private StressReport runHarness(TransferStressHarness harness) throws InterruptedException {
+    return harness.run(new AccountsService(new AccountsRepositoryInMemory(), new EmailNotificationService()));
+  }
+
+  private static long lines(File file) throws IOException {
+    try (Stream<String> lines = Files.lines(file.toPath())) {
+      return lines.count();
+    }
+  }
+
+  private Appender<ILoggingEvent> fileAppender(File file) throws JoranException {
+    @SuppressWarnings("unchecked")
+    Map<String, String> rules = (Map<String, String>) loggerContext.getObject(CoreConstants.PATTERN_RULE_REGISTRY);
+    if (rules == null) {
+      rules = new HashMap<>();
+      loggerContext.putObject(CoreConstants.PATTERN_RULE_REGISTRY, rules);
+    }
+    rules.put("escapedMsg", EscapedMessageConverter.class.getName());
+    rules.put("escapedEx", EscapedThrowableConverter.class.getName());
+
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern(LogbackSpringConfig.structuredPattern());
+    encoder.start();
+
+    FileAppender<ILoggingEvent> appender = new FileAppender<>();
+    appender.setContext(loggerContext);
+    appender.setFile(file.getAbsolutePath());
+    appender.setEncoder(encoder);
+    appender.start();
+    return appender;
+  }
+}
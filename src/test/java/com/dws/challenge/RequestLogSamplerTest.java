@@ -0,0 +1,45 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dws.challenge.web.RequestLogSampler;
+import org.junit.jupiter.api.Test;
+
+class RequestLogSamplerTest {
+
+  @Test
+  void shouldNotLogWhenDisabled() {
+    RequestLogSampler sampler = new RequestLogSampler(false, 1, 0);
+
+    assertThat(sampler.shouldLog("getAccount")).isFalse();
+  }
+
+  @Test
+  void shouldLogEveryNthRequestPerEndpoint() {
+    RequestLogSampler sampler = new RequestLogSampler(true, 3, 0);
+
+    int logged = 0;
+    for (int i = 0; i < 9; i++) {
+      if (sampler.shouldLog("getAccount")) {
+        logged++;
+      }
+    }
+    assertThat(logged).isEqualTo(3);
+    // each endpoint keeps its own counter
+    assertThat(sampler.shouldLog("createAccount")).isTrue();
+  }
+
+  @Test
+  void shouldCapSampledLinesPerSecond() {
+    RequestLogSampler sampler = new RequestLogSampler(true, 1, 5);
+
+    int logged = 0;
+    for (int i = 0; i < 50; i++) {
+      if (sampler.shouldLog("createAccount")) {
+        logged++;
+      }
+    }
+    // the loop may straddle a second boundary, which opens one more window
+    assertThat(logged).isBetween(5, 10);
+  }
+}
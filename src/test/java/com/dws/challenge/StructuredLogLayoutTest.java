@@ -0,0 +1,90 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.spi.FilterReply;
+import com.dws.challenge.logging.EscapedMessageConverter;
+import com.dws.challenge.logging.EscapedThrowableConverter;
+import com.dws.challenge.logging.LogbackSpringConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StructuredLogLayoutTest {
+
+  private final LoggerContext loggerContext = new LoggerContext();
+
+  private final Logger logger = loggerContext.getLogger(StructuredLogLayoutTest.class);
+
+  private PatternLayout layout;
+
+  @BeforeEach
+  void setUp() {
+    layout = new PatternLayout();
+    layout.setContext(loggerContext);
+    layout.getInstanceConverterMap().put("escapedMsg", EscapedMessageConverter.class.getName());
+    layout.getInstanceConverterMap().put("escapedEx", EscapedThrowableConverter.class.getName());
+    layout.setPattern("level=%level msg=\"%escapedMsg\"%escapedEx%n");
+    layout.start();
+  }
+
+  @Test
+  void shouldEscapeQuotesAndLineBreaksInTheMessage() {
+    String line = layout.doLayout(new LoggingEvent(Logger.FQCN, logger, Level.INFO,
+            "account {} said \"hi\"\nlevel=ERROR msg=\"forged\"", null, new Object[]{"Id-1\\"}));
+
+    assertThat(line).isEqualTo("level=INFO msg=\"account Id-1\\\\ said \\\"hi\\\"\\nlevel=ERROR msg=\\\"forged\\\"\""
+            + System.lineSeparator());
+  }
+
+  @Test
+  void shouldRenderStackTraceAsSingleEscapedField() {
+    String line = layout.doLayout(new LoggingEvent(Logger.FQCN, logger, Level.ERROR, "transfer failed",
+            new IllegalStateException("bad \"state\"", new RuntimeException("cause")), null));
+
+    assertThat(line).endsWith(System.lineSeparator());
+    String body = line.substring(0, line.length() - System.lineSeparator().length());
+    assertThat(body).doesNotContain("\n").doesNotContain("\r");
+    assertThat(body).startsWith("level=ERROR msg=\"transfer failed\" exception=\"java.lang.IllegalStateException: bad \\\"state\\\"\\n");
+    assertThat(body).contains("Caused by: java.lang.RuntimeException: cause").endsWith("\"");
+  }
+
+  @Test
+  void shouldOmitExceptionFieldWithoutThrowable() {
+    String line = layout.doLayout(new LoggingEvent(Logger.FQCN, logger, Level.INFO, "plain", null, null));
+
+    assertThat(line).isEqualTo("level=INFO msg=\"plain\"" + System.lineSeparator());
+  }
+
+  /*
+    junit to make sure WARN and ERROR bypass the async appender, which drops events when full
+   */
+  @Test
+  void shouldWriteWarnAndErrorSynchronouslyAndQueueOnlyInfo() throws Exception {
+    LoggerContext configured = LogbackSpringConfig.load();
+    try {
+      Logger root = configured.getLogger(Logger.ROOT_LOGGER_NAME);
+      Appender<ILoggingEvent> async = root.getAppender("ASYNC_CONSOLE");
+      Appender<ILoggingEvent> alerts = root.getAppender("ALERT_CONSOLE");
+
+      for (Level level : new Level[]{Level.WARN, Level.ERROR}) {
+        assertThat(async.getFilterChainDecision(event(level))).isEqualTo(FilterReply.DENY);
+        assertThat(alerts.getFilterChainDecision(event(level))).isNotEqualTo(FilterReply.DENY);
+      }
+      assertThat(async.getFilterChainDecision(event(Level.INFO))).isNotEqualTo(FilterReply.DENY);
+      assertThat(alerts.getFilterChainDecision(event(Level.INFO))).isEqualTo(FilterReply.DENY);
+    } finally {
+      configured.stop();
+    }
+  }
+
+  private LoggingEvent event(Level level) {
+    return new LoggingEvent(Logger.FQCN, logger, level, "event", null, null);
+  }
+}
@@ -0,0 +1,133 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.AccountsRepositoryTiered;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+  Heap held by the account store and transfer latency, tiered against in memory, for the same
+  accounts with 1% of them taking 99% of the transfers and a hot set sized for that 1%.
+  Sized with -Dstress.accounts and -Dstress.operations. Heap after System.gc() is only a
+  reading, so it is reported, not asserted. Tagged benchmark, run with ./gradlew benchmark.
+ */
+@Tag("benchmark")
+class TieredStorageReportTest {
+
+  private static final Logger log = LoggerFactory.getLogger(TieredStorageReportTest.class);
+
+  private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shouldReportHeapAndLatencyAgainstInMemoryStoreForOnePercentHotSet() throws Exception {
+    int accounts = Integer.getInteger("stress.accounts", 200_000);
+    int operations = Integer.getInteger("stress.operations", 200_000);
+
+    Result inMemory = measure(new AccountsRepositoryInMemory(), accounts, operations);
+    long hotMemoryBytes = Math.max(1, accounts / 100) * 256L;
+    AccountsRepositoryTiered tiered = new AccountsRepositoryTiered(tempDir.resolve("cold.dat").toString(),
+            Long.highestOneBit(accounts) * 4, hotMemoryBytes, 2);
+    try {
+      Result tieredResult = measure(tiered, accounts, operations);
+
+      log.info("In memory store, {} accounts: {}", accounts, inMemory);
+      log.info("Tiered store, {} accounts: {} hotAccounts={} faults={} evictions={}", accounts, tieredResult,
+              tiered.getHotAccountCount(), tiered.getFaults(), tiered.getEvictions());
+      assertThat(tieredResult.total).isEqualTo(inMemory.total);
+    } finally {
+      tiered.close();
+    }
+  }
+
+  private static Result measure(AccountsRepository accountsRepository, int accounts, int operations) {
+    long heapBefore = usedHeapAfterGc();
+    AccountsService accountsService = new AccountsService(accountsRepository);
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account("Report-" + i, INITIAL_BALANCE));
+    }
+
+    SplittableRandom random = new SplittableRandom(42);
+    int hotAccounts = Math.max(2, accounts / 100);
+    // untimed round to compile the path and settle the hot set
+    transfer(accountsService, random, accounts, hotAccounts, operations / 10, null);
+    long[] latencies = new long[operations];
+    long started = System.nanoTime();
+    transfer(accountsService, random, accounts, hotAccounts, operations, latencies);
+    long elapsed = System.nanoTime() - started;
+
+    long heapBytes = usedHeapAfterGc() - heapBefore;
+    AtomicReference<BigDecimal> total = new AtomicReference<>(BigDecimal.ZERO);
+    accountsService.getAccountsRepository().forEachAccount(account -> total.accumulateAndGet(account.getBalance(),
+            BigDecimal::add));
+    Arrays.sort(latencies);
+    return new Result(heapBytes, operations * 1_000_000_000L / elapsed, latencies, total.get());
+  }
+
+  private static void transfer(AccountsService accountsService, SplittableRandom random, int accounts,
+                               int hotAccounts, int operations, long[] latencies) {
+    for (int i = 0; i < operations; i++) {
+      int range = random.nextInt(100) == 0 ? accounts : hotAccounts;
+      int from = random.nextInt(range);
+      int to = (from + 1 + random.nextInt(range - 1)) % range;
+      long start = System.nanoTime();
+      accountsService.transferFund("Report-" + from, "Report-" + to, new BigDecimal("0.01"));
+      if (latencies != null) {
+        latencies[i] = System.nanoTime() - start;
+      }
+    }
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static final class Result {
+
+    private final long heapBytes;
+
+    private final long throughput;
+
+    private final long[] sortedLatencies;
+
+    private final BigDecimal total;
+
+    Result(long heapBytes, long throughput, long[] sortedLatencies, BigDecimal total) {
+      this.heapBytes = heapBytes;
+      this.throughput = throughput;
+      this.sortedLatencies = sortedLatencies;
+      this.total = total;
+    }
+
+    private long percentileMicros(double percentile) {
+      return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)] / 1000;
+    }
+
+    @Override
+    public String toString() {
+      return "heap=" + heapBytes / (1024 * 1024) + "MB throughput=" + throughput + " transfers/s p50="
+              + percentileMicros(0.5) + "us p99=" + percentileMicros(0.99) + "us p999=" + percentileMicros(0.999)
+              + "us";
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransactionDetails;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.wire.BinaryTransferServer;
+import com.dws.challenge.wire.TransferFrameCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/*
+  Loopback comparison of the REST transfer endpoint and the binary protocol on the same
+  workload, sized with -Dstress.operations (per transport) and -Dstress.threads (clients).
+  Notification logging is off so only the transports are compared. Tagged benchmark,
+  run with ./gradlew benchmark.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"accounts.wire.enabled=true", "accounts.wire.port=0",
+                "logging.level.com.dws.challenge.service.EmailNotificationService=OFF"})
+class TransferTransportComparisonTest {
+
+  private static final Logger log = LoggerFactory.getLogger(TransferTransportComparisonTest.class);
+
+  private static final int ACCOUNTS = 64;
+
+  private static final int PIPELINE_DEPTH = 32;
+
+  @LocalServerPort
+  private int httpPort;
+
+  @Autowired
+  private BinaryTransferServer binaryTransferServer;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Test
+  void shouldCompareRestAndBinaryTransfersOnLoopback() throws Exception {
+    int operations = Integer.getInteger("stress.operations", 4_000);
+    int threads = Integer.getInteger("stress.threads", 4);
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountsService.createAccount(new Account("Transport-" + i, new BigDecimal("1000000000")));
+    }
+
+    HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    // one untimed round each to get connections, JIT and the account path going
+    run(threads, operations / 10, this::restClient, httpClient);
+    run(threads, operations / 10, this::binaryClient, 1);
+    Result rest = run(threads, operations, this::restClient, httpClient);
+    Result binary = run(threads, operations, this::binaryClient, 1);
+    Result pipelined = run(threads, operations, this::binaryClient, PIPELINE_DEPTH);
+
+    log.info("REST:              {}", rest);
+    log.info("binary:            {}", binary);
+    log.info("binary pipelined:  {} (latency per batch of {})", pipelined, PIPELINE_DEPTH);
+    assertThat(rest.failures + binary.failures + pipelined.failures).isZero();
+  }
+
+  private long[] restClient(int client, int operations, HttpClient httpClient) throws Exception {
+    long[] latencies = new long[operations];
+    URI uri = URI.create("http://127.0.0.1:" + httpPort + "/v1/accounts/transfer");
+    for (int i = 0; i < operations; i++) {
+      String body = "{\"fromAccountId\":\"" + from(client, i) + "\",\"toAccountId\":\"" + to(client, i)
+              + "\",\"transferAmount\":0.01}";
+      HttpRequest request = HttpRequest.newBuilder(uri).header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+      long start = System.nanoTime();
+      HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      latencies[i] = response.statusCode() == 200 ? System.nanoTime() - start : -1;
+    }
+    return latencies;
+  }
+
+  private long[] binaryClient(int client, int operations, int depth) throws Exception {
+    long[] latencies = new long[(operations + depth - 1) / depth];
+    ByteBuffer request = ByteBuffer.allocate(depth * TransferFrameCodec.MAX_FRAME_LENGTH);
+    ByteBuffer response = ByteBuffer.allocate(64 * 1024);
+    try (SocketChannel channel = SocketChannel.open(
+            new InetSocketAddress("127.0.0.1", binaryTransferServer.getLocalPort()))) {
+      channel.socket().setTcpNoDelay(true);
+      for (int sent = 0, batch = 0; sent < operations; batch++) {
+        request.clear();
+        int frames = Math.min(depth, operations - sent);
+        for (int f = 0; f < frames; f++, sent++) {
+          TransactionDetails details = new TransactionDetails();
+          details.setFromAccountId(from(client, sent));
+          details.setToAccountId(to(client, sent));
+          details.setTransferAmount(new BigDecimal("0.01"));
+          TransferFrameCodec.encodeRequest(request, sent, details);
+        }
+        request.flip();
+        long start = System.nanoTime();
+        while (request.hasRemaining()) {
+          channel.write(request);
+        }
+        boolean ok = true;
+        for (int received = 0; received < frames; ) {
+          channel.read(response);
+          response.flip();
+          TransferFrameCodec.TransferResponse decoded;
+          while ((decoded = TransferFrameCodec.decodeResponse(response)) != null) {
+            ok &= decoded.getStatus() == TransferFrameCodec.STATUS_OK;
+            received++;
+          }
+          response.compact();
+        }
+        latencies[batch] = ok ? System.nanoTime() - start : -1;
+      }
+    }
+    return latencies;
+  }
+
+  private static String from(int client, int i) {
+    return "Transport-" + ((client * 7 + i) % ACCOUNTS);
+  }
+
+  private static String to(int client, int i) {
+    return "Transport-" + ((client * 7 + i + 1) % ACCOUNTS);
+  }
+
+  private <T> Result run(int threads, int operations, Client<T> client, T argument) throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<long[]>> futures = new ArrayList<>();
+      long started = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        int clientId = t;
+        futures.add(executorService.submit(() -> client.run(clientId, operations / threads, argument)));
+      }
+      List<long[]> latencies = new ArrayList<>();
+      for (Future<long[]> future : futures) {
+        latencies.add(future.get());
+      }
+      return new Result(operations / threads * threads, System.nanoTime() - started, latencies);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private interface Client<T> {
+
+    long[] run(int client, int operations, T argument) throws Exception;
+  }
+
+  private static final class Result {
+
+    private final long throughput;
+
+    private final long failures;
+
+    private final long[] sorted;
+
+    Result(int operations, long elapsedNanos, List<long[]> latencies) {
+      this.throughput = operations * 1_000_000_000L / Math.max(1, elapsedNanos);
+      this.sorted = latencies.stream().flatMapToLong(Arrays::stream).filter(latency -> latency >= 0).sorted()
+              .toArray();
+      this.failures = latencies.stream().flatMapToLong(Arrays::stream).filter(latency -> latency < 0).count();
+    }
+
+    private long percentileMicros(double percentile) {
+      return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1000;
+    }
+
+    @Override
+    public String toString() {
+      return "throughput=" + throughput + " transfers/s p50=" + percentileMicros(0.5) + "us p99="
+              + percentileMicros(0.99) + "us failures=" + failures;
+    }
+  }
+}
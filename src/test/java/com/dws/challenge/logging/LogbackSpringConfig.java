@@ -0,0 +1,39 @@
+package com.dws.challenge.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.joran.spi.JoranException;
+
+/*
+  logback-spring.xml loaded into a context of its own, so tests check the shipped
+  configuration instead of a copy of it. Stop the context when done.
+ */
+public final class LogbackSpringConfig {
+
+  private LogbackSpringConfig() {
+  }
+
+  public static LoggerContext load() throws JoranException {
+    LoggerContext context = new LoggerContext();
+    JoranConfigurator configurator = new JoranConfigurator();
+    configurator.setContext(context);
+    configurator.doConfigure(LogbackSpringConfig.class.getResource("/logback-spring.xml"));
+    return context;
+  }
+
+  // the pattern of the console lines, as the async worker writes them
+  public static String structuredPattern() throws JoranException {
+    LoggerContext context = load();
+    try {
+      AsyncAppender async = (AsyncAppender) context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("ASYNC_CONSOLE");
+      OutputStreamAppender<?> console = (OutputStreamAppender<?>) async.getAppender("CONSOLE");
+      return ((PatternLayoutEncoder) console.getEncoder()).getPattern();
+    } finally {
+      context.stop();
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.dws.challenge.stress;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+  Checks every read against the transfers on its account.
+
+  On its own, a read has to include every transfer that completed before it started, none
+  that started after it returned, and some subset of the transfers overlapping it. That
+  alone lets a stale read through: two reads one after the other, both overlapping the
+  same transfer, where the first includes it and the second does not.
+
+  So reads are also checked against each other. When exactly one subset of its overlapping
+  transfers explains a read, that read pins those transfers down: the ones it includes
+  took effect before it returned, the ones it leaves out not before it started. A transfer
+  included by a read that returned before this read started must be included here, one
+  left out by a read that started after this read returned must be left out here.
+
+  This is a necessary condition for linearizability, not a full check: reads explained by
+  several subsets pin nothing, and reads overlapping more than MAX_OVERLAPPING_TRANSFERS
+  transfers are counted as unchecked.
+ */
+final class ReadChecker {
+
+  static final int MAX_OVERLAPPING_TRANSFERS = 16;
+
+  private static final int NO_SUBSET = -1;
+
+  private static final int SEVERAL_SUBSETS = -2;
+
+  private final StressHistory[] histories;
+
+  private final TransferIndex index;
+
+  private final String[] ids;
+
+  private final long[] initialCents;
+
+  private final List<String> violations;
+
+  // per transfer in the index: earliest end of a read that pinned it as included
+  private final long[] includedBy;
+
+  // per transfer in the index: latest start of a read that pinned it as left out
+  private final long[] excludedBy;
+
+  private final int[] overlapping = new int[MAX_OVERLAPPING_TRANSFERS];
+
+  private final long[] values = new long[MAX_OVERLAPPING_TRANSFERS];
+
+  private final long[] sums = new long[1 << MAX_OVERLAPPING_TRANSFERS];
+
+  private long checkedReads;
+
+  private long uncheckedReads;
+
+  ReadChecker(StressHistory[] histories, TransferIndex index, String[] ids, long[] initialCents,
+              List<String> violations) {
+    this.histories = histories;
+    this.index = index;
+    this.ids = ids;
+    this.initialCents = initialCents;
+    this.violations = violations;
+    this.includedBy = new long[index.size()];
+    this.excludedBy = new long[index.size()];
+    Arrays.fill(includedBy, Long.MAX_VALUE);
+    Arrays.fill(excludedBy, Long.MIN_VALUE);
+  }
+
+  long getCheckedReads() {
+    return checkedReads;
+  }
+
+  long getUncheckedReads() {
+    return uncheckedReads;
+  }
+
+  void check() {
+    // first pass: every read on its own, recording what the unambiguous ones pin down
+    for (StressHistory history : histories) {
+      for (int i = 0; i < history.size; i++) {
+        if (history.type[i] == StressHistory.READ) {
+          checkAlone(history, i);
+        }
+      }
+    }
+    // second pass: every read against what the reads before and after it pinned down
+    for (StressHistory history : histories) {
+      for (int i = 0; i < history.size; i++) {
+        if (history.type[i] == StressHistory.READ && history.succeeded[i]) {
+          checkAgainstOtherReads(history, i);
+        }
+      }
+    }
+  }
+
+  private void checkAlone(StressHistory history, int i) {
+    int a = history.first[i];
+    if (!history.succeeded[i]) {
+      TransferStressHarness.report(violations, "Read of existing account " + ids[a] + " returned nothing");
+      return;
+    }
+    int count = collectOverlapping(a, history.startNanos[i], history.endNanos[i]);
+    if (count < 0) {
+      uncheckedReads++;
+      return;
+    }
+    checkedReads++;
+    long observed = history.value[i];
+    if (observed < 0) {
+      TransferStressHarness.report(violations, "Read of " + ids[a] + " observed a negative balance " + observed);
+    }
+    long before = committedBefore(a, history.startNanos[i]);
+    for (int k = 0; k < count; k++) {
+      values[k] = index.delta[overlapping[k]];
+    }
+    int subset = findSubset(count, observed - before);
+    if (subset == NO_SUBSET) {
+      TransferStressHarness.report(violations, "Read of " + ids[a] + " observed " + observed + " cents, which no "
+              + "order of the " + count + " concurrent transfers on top of " + before + " cents explains");
+    } else if (subset != SEVERAL_SUBSETS) {
+      for (int k = 0; k < count; k++) {
+        int transfer = overlapping[k];
+        if ((subset & (1 << k)) != 0) {
+          includedBy[transfer] = Math.min(includedBy[transfer], history.endNanos[i]);
+        } else {
+          excludedBy[transfer] = Math.max(excludedBy[transfer], history.startNanos[i]);
+        }
+      }
+    }
+  }
+
+  private void checkAgainstOtherReads(StressHistory history, int i) {
+    int a = history.first[i];
+    long readStart = history.startNanos[i];
+    long readEnd = history.endNanos[i];
+    int count = collectOverlapping(a, readStart, readEnd);
+    if (count <= 0) {
+      return;
+    }
+    long target = history.value[i] - committedBefore(a, readStart);
+    int free = 0;
+    boolean pinned = false;
+    for (int k = 0; k < count; k++) {
+      int transfer = overlapping[k];
+      boolean mustInclude = includedBy[transfer] < readStart;
+      boolean mustExclude = excludedBy[transfer] > readEnd;
+      if (mustInclude && mustExclude) {
+        TransferStressHarness.report(violations, "Reads of " + ids[a] + " disagree on whether a transfer of "
+                + index.delta[transfer] + " cents took effect");
+        return;
+      }
+      if (mustInclude) {
+        target -= index.delta[transfer];
+      }
+      if (mustInclude || mustExclude) {
+        pinned = true;
+      } else {
+        values[free++] = index.delta[transfer];
+      }
+    }
+    if (pinned && findSubset(free, target) == NO_SUBSET) {
+      TransferStressHarness.report(violations, "Read of " + ids[a] + " observed " + history.value[i]
+              + " cents, which contradicts what earlier or later reads of the account observed (stale read)");
+    }
+  }
+
+  // transfers on the account overlapping the read into overlapping[], -1 when there are too many
+  private int collectOverlapping(int account, long readStart, long readEnd) {
+    int count = 0;
+    int to = index.offsets[account + 1];
+    for (int j = index.firstEndingAtOrAfter(account, readStart);
+         j < to && index.end[j] <= readEnd + index.maxDuration[account]; j++) {
+      if (index.start[j] <= readEnd) {
+        if (count == MAX_OVERLAPPING_TRANSFERS) {
+          return -1;
+        }
+        overlapping[count++] = j;
+      }
+    }
+    return count;
+  }
+
+  private long committedBefore(int account, long time) {
+    return initialCents[account] + index.sumBefore(account, index.firstEndingAtOrAfter(account, time));
+  }
+
+  // bit mask of the only subset of values[0, count) adding up to target, or NO_SUBSET / SEVERAL_SUBSETS
+  private int findSubset(int count, long target) {
+    int size = 1;
+    sums[0] = 0;
+    for (int j = 0; j < count; j++) {
+      for (int k = 0; k < size; k++) {
+        sums[size + k] = sums[k] + values[j];
+      }
+      size <<= 1;
+    }
+    int found = NO_SUBSET;
+    for (int k = 0; k < size; k++) {
+      if (sums[k] == target) {
+        if (found != NO_SUBSET) {
+          return SEVERAL_SUBSETS;
+        }
+        found = k;
+      }
+    }
+    return found;
+  }
+}
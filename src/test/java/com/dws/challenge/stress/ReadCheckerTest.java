@@ -0,0 +1,59 @@
+package com.dws.challenge.stress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ReadCheckerTest {
+
+  private static final String[] IDS = {"Id-0", "Id-1"};
+
+  private static final long[] INITIAL_CENTS = {1000, 1000};
+
+  /*
+    junit for the stale read each read alone cannot catch: both overlap the same
+    transfer, the first one sees it and the later one does not
+   */
+  @Test
+  void shouldReportStaleReadAcrossTwoOverlappingReads() {
+    List<String> violations = check(1007, 1000);
+
+    // each of the two reads contradicts what the other pinned down
+    assertThat(violations).hasSize(2).allSatisfy(violation -> assertThat(violation).contains("stale read"));
+  }
+
+  @Test
+  void shouldAcceptReadsThatSeeTheTransferInOrder() {
+    assertThat(check(1007, 1007)).isEmpty();
+    assertThat(check(1000, 1007)).isEmpty();
+    assertThat(check(1000, 1000)).isEmpty();
+  }
+
+  @Test
+  void shouldReportReadNoSubsetOfConcurrentTransfersExplains() {
+    List<String> violations = check(1003, 1007);
+
+    assertThat(violations).hasSize(1);
+    assertThat(violations.get(0)).contains("no order of the 1 concurrent transfers");
+  }
+
+  // a transfer of 7 cents from Id-0 to Id-1 over [100, 1000] and two reads of Id-1 during it
+  private static List<String> check(long firstRead, long secondRead) {
+    StressHistory transfers = new StressHistory(1);
+    transfers.record(StressHistory.TRANSFER, 0, 1, 7, true, 100, 1000);
+    StressHistory reads = new StressHistory(2);
+    reads.record(StressHistory.READ, 1, -1, firstRead, true, 200, 300);
+    reads.record(StressHistory.READ, 1, -1, secondRead, true, 400, 500);
+    StressHistory[] histories = {transfers, reads};
+
+    List<String> violations = new ArrayList<>();
+    ReadChecker readChecker = new ReadChecker(histories, TransferIndex.build(histories, 2), IDS, INITIAL_CENTS,
+            violations);
+    readChecker.check();
+    assertThat(readChecker.getCheckedReads()).isEqualTo(2);
+    return violations;
+  }
+}
@@ -0,0 +1,71 @@
+package com.dws.challenge.stress;
+
+import java.util.Arrays;
+
+/*
+  Operations recorded by one worker thread, kept in primitive arrays so that
+  millions of events fit on the heap without an object per event.
+ */
+final class StressHistory {
+
+  static final byte TRANSFER = 0;
+
+  static final byte READ = 1;
+
+  static final byte CREATE = 2;
+
+  int size;
+
+  byte[] type;
+
+  // transfer: debtor and creditor, read/create: the account in first
+  int[] first;
+
+  int[] second;
+
+  // transfer: amount, read: observed balance, create: initial balance; all in cents
+  long[] value;
+
+  boolean[] succeeded;
+
+  long[] startNanos;
+
+  long[] endNanos;
+
+  StressHistory(int expectedOperations) {
+    int capacity = Math.max(16, expectedOperations);
+    type = new byte[capacity];
+    first = new int[capacity];
+    second = new int[capacity];
+    value = new long[capacity];
+    succeeded = new boolean[capacity];
+    startNanos = new long[capacity];
+    endNanos = new long[capacity];
+  }
+
+  void record(byte operation, int firstAccount, int secondAccount, long amount, boolean success,
+              long start, long end) {
+    if (size == type.length) {
+      grow();
+    }
+    type[size] = operation;
+    first[size] = firstAccount;
+    second[size] = secondAccount;
+    value[size] = amount;
+    succeeded[size] = success;
+    startNanos[size] = start;
+    endNanos[size] = end;
+    size++;
+  }
+
+  private void grow() {
+    int capacity = type.length * 2;
+    type = Arrays.copyOf(type, capacity);
+    first = Arrays.copyOf(first, capacity);
+    second = Arrays.copyOf(second, capacity);
+    value = Arrays.copyOf(value, capacity);
+    succeeded = Arrays.copyOf(succeeded, capacity);
+    startNanos = Arrays.copyOf(startNanos, capacity);
+    endNanos = Arrays.copyOf(endNanos, capacity);
+  }
+}
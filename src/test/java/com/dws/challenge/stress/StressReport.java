@@ -0,0 +1,71 @@
+package com.dws.challenge.stress;
+
+import java.util.List;
+
+/*
+  Outcome of a stress run: throughput plus every invariant or read consistency violation found.
+ */
+public final class StressReport {
+
+  private final long seed;
+
+  private final long operations;
+
+  private final long elapsedNanos;
+
+  private final long failedTransfers;
+
+  private final long checkedReads;
+
+  private final long uncheckedReads;
+
+  private final List<String> violations;
+
+  StressReport(long seed, long operations, long elapsedNanos, long failedTransfers,
+               long checkedReads, long uncheckedReads, List<String> violations) {
+    this.seed = seed;
+    this.operations = operations;
+    this.elapsedNanos = elapsedNanos;
+    this.failedTransfers = failedTransfers;
+    this.checkedReads = checkedReads;
+    this.uncheckedReads = uncheckedReads;
+    this.violations = violations;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public long getOperations() {
+    return operations;
+  }
+
+  public double getThroughputPerSecond() {
+    return operations * 1_000_000_000d / Math.max(1, elapsedNanos);
+  }
+
+  public long getFailedTransfers() {
+    return failedTransfers;
+  }
+
+  public long getCheckedReads() {
+    return checkedReads;
+  }
+
+  // reads overlapping too many concurrent transfers to enumerate every possible outcome
+  public long getUncheckedReads() {
+    return uncheckedReads;
+  }
+
+  public List<String> getViolations() {
+    return violations;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("seed=%d operations=%d throughput=%.0f ops/s failedTransfers=%d "
+                    + "checkedReads=%d uncheckedReads=%d violations=%d",
+            seed, operations, getThroughputPerSecond(), failedTransfers, checkedReads, uncheckedReads,
+            violations.size());
+  }
+}
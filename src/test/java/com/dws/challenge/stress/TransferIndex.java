@@ -0,0 +1,146 @@
+package com.dws.challenge.stress;
+
+import java.util.Arrays;
+
+/*
+  The successful transfers of a run, split into one slice per account (each transfer is in
+  the slices of both its accounts) and sorted by completion time, with the running sum of
+  the balance changes so the effect of all transfers completed before a point in time is
+  one lookup.
+ */
+final class TransferIndex {
+
+  private static final int LOCAL_INDEX_BITS = 20;
+
+  // slice of account a is [offsets[a], offsets[a + 1])
+  final int[] offsets;
+
+  final long[] start;
+
+  final long[] end;
+
+  // signed balance change in cents on the slice's account
+  final long[] delta;
+
+  // longest transfer on each account, bounds how far past a read an overlapping transfer can end
+  final long[] maxDuration;
+
+  private final long[] prefixSums;
+
+  private TransferIndex(int[] offsets, long[] start, long[] end, long[] delta, long[] maxDuration,
+                        long[] prefixSums) {
+    this.offsets = offsets;
+    this.start = start;
+    this.end = end;
+    this.delta = delta;
+    this.maxDuration = maxDuration;
+    this.prefixSums = prefixSums;
+  }
+
+  static TransferIndex build(StressHistory[] histories, int accounts) {
+    int[] counts = new int[accounts + 1];
+    for (StressHistory history : histories) {
+      for (int i = 0; i < history.size; i++) {
+        if (history.type[i] == StressHistory.TRANSFER && history.succeeded[i]) {
+          counts[history.first[i] + 1]++;
+          counts[history.second[i] + 1]++;
+        }
+      }
+    }
+    int[] offsets = new int[accounts + 1];
+    for (int a = 0; a < accounts; a++) {
+      offsets[a + 1] = offsets[a] + counts[a + 1];
+    }
+    long[] start = new long[offsets[accounts]];
+    long[] end = new long[offsets[accounts]];
+    long[] delta = new long[offsets[accounts]];
+    int[] fill = Arrays.copyOf(offsets, accounts);
+    long origin = Long.MAX_VALUE;
+    for (StressHistory history : histories) {
+      if (history.size > 0) {
+        origin = Math.min(origin, history.startNanos[0]);
+      }
+      for (int i = 0; i < history.size; i++) {
+        if (history.type[i] == StressHistory.TRANSFER && history.succeeded[i]) {
+          int d = fill[history.first[i]]++;
+          start[d] = history.startNanos[i];
+          end[d] = history.endNanos[i];
+          delta[d] = -history.value[i];
+          int c = fill[history.second[i]]++;
+          start[c] = history.startNanos[i];
+          end[c] = history.endNanos[i];
+          delta[c] = history.value[i];
+        }
+      }
+    }
+
+    long[] prefixSums = new long[offsets[accounts] + accounts];
+    long[] maxDuration = new long[accounts];
+    for (int a = 0; a < accounts; a++) {
+      sortByEnd(start, end, delta, offsets[a], offsets[a + 1], origin);
+      long sum = 0;
+      for (int j = offsets[a]; j < offsets[a + 1]; j++) {
+        prefixSums[j + a] = sum;
+        sum += delta[j];
+        maxDuration[a] = Math.max(maxDuration[a], end[j] - start[j]);
+      }
+      prefixSums[offsets[a + 1] + a] = sum;
+    }
+    return new TransferIndex(offsets, start, end, delta, maxDuration, prefixSums);
+  }
+
+  int size() {
+    return start.length;
+  }
+
+  // sum of the balance changes of the transfers in [offsets[account], index) of the account's slice
+  long sumBefore(int account, int index) {
+    return prefixSums[index + account];
+  }
+
+  long totalChange(int account) {
+    return prefixSums[offsets[account + 1] + account];
+  }
+
+  // first index in the account's slice whose transfer did not end before the given time
+  int firstEndingAtOrAfter(int account, long time) {
+    int low = offsets[account];
+    int high = offsets[account + 1];
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (end[mid] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static void sortByEnd(long[] start, long[] end, long[] delta, int from, int to, long origin) {
+    int length = to - from;
+    if (length < 2) {
+      return;
+    }
+    if (length >= 1 << LOCAL_INDEX_BITS) {
+      throw new IllegalStateException("Too many transfers on a single account to check: " + length);
+    }
+    long[] keys = new long[length];
+    for (int j = 0; j < length; j++) {
+      keys[j] = ((end[from + j] - origin) << LOCAL_INDEX_BITS) | j;
+    }
+    Arrays.sort(keys);
+    long[] sortedStart = new long[length];
+    long[] sortedEnd = new long[length];
+    long[] sortedDelta = new long[length];
+    for (int j = 0; j < length; j++) {
+      int source = from + (int) (keys[j] & ((1 << LOCAL_INDEX_BITS) - 1));
+      sortedStart[j] = start[source];
+      sortedEnd[j] = end[source];
+      sortedDelta[j] = delta[source];
+    }
+    System.arraycopy(sortedStart, 0, start, from, length);
+    System.arraycopy(sortedEnd, 0, end, from, length);
+    System.arraycopy(sortedDelta, 0, delta, from, length);
+  }
+}
@@ -0,0 +1,244 @@
+package com.dws.challenge.stress;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+  Drives randomized concurrent transfers, account creations and balance reads against an
+  AccountsService (and therefore against whichever AccountsRepository backs it), records
+  the history of every worker and checks it afterwards.
+
+  The operation sequence of each worker is derived from the seed, so a failing run can be
+  repeated with the same mix; the interleaving is up to the scheduler.
+
+  Checks:
+  - every final balance equals its initial balance plus the successful transfers touching it,
+    and money is conserved over the whole store
+  - no read or final balance is negative
+  - every read is consistent with the transfers on its account and with the other reads of
+    it, see ReadChecker. These are necessary conditions for linearizability, not a proof.
+ */
+public class TransferStressHarness {
+
+  private static final int MAX_REPORTED_VIOLATIONS = 100;
+
+  private final int initialAccounts;
+
+  private final int threads;
+
+  private final int operations;
+
+  private final long seed;
+
+  private final long initialBalanceCents = 1_000_00;
+
+  private final int readPercent = 30;
+
+  private final int createPercent = 1;
+
+  private final long timeoutSeconds = 1800;
+
+  public TransferStressHarness(int initialAccounts, int threads, int operations, long seed) {
+    this.initialAccounts = initialAccounts;
+    this.threads = threads;
+    this.operations = operations;
+    this.seed = seed;
+  }
+
+  /*
+    Sizes the run from stress.accounts, stress.threads, stress.operations and stress.seed,
+    e.g. ./gradlew test -Dstress.operations=5000000 -Dstress.seed=42
+   */
+  public static TransferStressHarness fromSystemProperties(int accounts, int threads, int operations) {
+    return new TransferStressHarness(
+            Integer.getInteger("stress.accounts", accounts),
+            Integer.getInteger("stress.threads", threads),
+            Integer.getInteger("stress.operations", operations),
+            Long.getLong("stress.seed", System.nanoTime()));
+  }
+
+  public StressReport run(AccountsService accountsService) throws InterruptedException {
+    int capacity = initialAccounts + operations;
+    String[] ids = new String[capacity];
+    long[] initialCents = new long[capacity];
+    AtomicIntegerArray ready = new AtomicIntegerArray(capacity);
+    AtomicInteger allocated = new AtomicInteger(initialAccounts);
+
+    String prefix = "Stress-" + seed + "-";
+    for (int i = 0; i < initialAccounts; i++) {
+      ids[i] = prefix + i;
+      initialCents[i] = initialBalanceCents;
+      accountsService.createAccount(new Account(ids[i], BigDecimal.valueOf(initialBalanceCents, 2)));
+      ready.set(i, 1);
+    }
+
+    StressHistory[] histories = new StressHistory[threads];
+    List<String> violations = new ArrayList<>();
+    CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int worker = t;
+      int workerOperations = operations / threads + (t < operations % threads ? 1 : 0);
+      histories[t] = new StressHistory(workerOperations);
+      workers.add(executorService.submit(() -> {
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        runWorker(accountsService, new SplittableRandom(seed + worker * 0x9E3779B97F4A7C15L), workerOperations,
+                histories[worker], ids, initialCents, ready, allocated, prefix);
+      }));
+    }
+
+    long started = System.nanoTime();
+    startLatch.countDown();
+    executorService.shutdown();
+    if (!executorService.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+      executorService.shutdownNow();
+      violations.add("Workers did not finish within " + timeoutSeconds + "s, possible deadlock");
+      return new StressReport(seed, 0, System.nanoTime() - started, 0, 0, 0, violations);
+    }
+    long elapsed = System.nanoTime() - started;
+    for (Future<?> worker : workers) {
+      try {
+        worker.get();
+      } catch (ExecutionException ex) {
+        report(violations, "Worker failed: " + ex.getCause());
+      }
+    }
+
+    return check(accountsService, histories, ids, initialCents, ready, allocated.get(), elapsed, violations);
+  }
+
+  private void runWorker(AccountsService accountsService, SplittableRandom random, int workerOperations,
+                         StressHistory history, String[] ids, long[] initialCents, AtomicIntegerArray ready,
+                         AtomicInteger allocated, String prefix) {
+    for (int i = 0; i < workerOperations; i++) {
+      int dice = random.nextInt(100);
+      if (dice < createPercent) {
+        int account = allocated.getAndIncrement();
+        ids[account] = prefix + account;
+        initialCents[account] = random.nextLong(initialBalanceCents);
+        long start = System.nanoTime();
+        boolean success = true;
+        try {
+          accountsService.createAccount(new Account(ids[account], BigDecimal.valueOf(initialCents[account], 2)));
+        } catch (RuntimeException ex) {
+          success = false;
+        }
+        long end = System.nanoTime();
+        history.record(StressHistory.CREATE, account, -1, initialCents[account], success, start, end);
+        if (success) {
+          // publishes ids[account] and initialCents[account] to the other workers
+          ready.set(account, 1);
+        }
+      } else if (dice < createPercent + readPercent) {
+        int account = pickAccount(random, ready, allocated);
+        long start = System.nanoTime();
+        Account read = accountsService.getAccount(ids[account]);
+        BigDecimal balance = read == null ? null : read.getBalance();
+        long end = System.nanoTime();
+        history.record(StressHistory.READ, account, -1, balance == null ? Long.MIN_VALUE : toCents(balance),
+                balance != null, start, end);
+      } else {
+        int debtor = pickAccount(random, ready, allocated);
+        int creditor = pickAccount(random, ready, allocated);
+        if (debtor == creditor) {
+          creditor = (debtor + 1) % initialAccounts;
+        }
+        long amount = 1 + random.nextLong(initialBalanceCents / 10);
+        long start = System.nanoTime();
+        boolean success = true;
+        try {
+          accountsService.transferFund(ids[debtor], ids[creditor], BigDecimal.valueOf(amount, 2));
+        } catch (RuntimeException ex) {
+          success = false;
+        }
+        long end = System.nanoTime();
+        history.record(StressHistory.TRANSFER, debtor, creditor, amount, success, start, end);
+      }
+    }
+  }
+
+  private int pickAccount(SplittableRandom random, AtomicIntegerArray ready, AtomicInteger allocated) {
+    int account = random.nextInt(allocated.get());
+    return ready.get(account) == 1 ? account : random.nextInt(initialAccounts);
+  }
+
+  private StressReport check(AccountsService accountsService, StressHistory[] histories, String[] ids,
+                             long[] initialCents, AtomicIntegerArray ready, int accounts, long elapsed,
+                             List<String> violations) {
+    long totalOperations = 0;
+    long failedTransfers = 0;
+    for (StressHistory history : histories) {
+      totalOperations += history.size;
+      for (int i = 0; i < history.size; i++) {
+        if (history.type[i] == StressHistory.TRANSFER && !history.succeeded[i]) {
+          failedTransfers++;
+        } else if (history.type[i] == StressHistory.CREATE && !history.succeeded[i]) {
+          report(violations, "Creating unique account " + ids[history.first[i]] + " failed");
+        }
+      }
+    }
+    TransferIndex index = TransferIndex.build(histories, accounts);
+
+    // final balances and conservation of money
+    long expectedTotal = 0;
+    long actualTotal = 0;
+    for (int a = 0; a < accounts; a++) {
+      if (ready.get(a) != 1) {
+        continue;
+      }
+      long expected = initialCents[a] + index.totalChange(a);
+      Account account = accountsService.getAccount(ids[a]);
+      if (account == null) {
+        report(violations, "Account " + ids[a] + " disappeared");
+        continue;
+      }
+      long actual = toCents(account.getBalance());
+      expectedTotal += initialCents[a];
+      actualTotal += actual;
+      if (actual != expected) {
+        report(violations, "Account " + ids[a] + " ended with " + actual + " cents, expected " + expected);
+      }
+      if (actual < 0) {
+        report(violations, "Account " + ids[a] + " ended with a negative balance " + actual);
+      }
+    }
+    if (expectedTotal != actualTotal) {
+      report(violations, "Money not conserved: " + actualTotal + " cents held, " + expectedTotal + " deposited");
+    }
+
+    ReadChecker readChecker = new ReadChecker(histories, index, ids, initialCents, violations);
+    readChecker.check();
+
+    return new StressReport(seed, totalOperations, elapsed, failedTransfers, readChecker.getCheckedReads(),
+            readChecker.getUncheckedReads(), violations);
+  }
+
+  private static long toCents(BigDecimal amount) {
+    return amount.movePointRight(2).longValueExact();
+  }
+
+  static void report(List<String> violations, String violation) {
+    if (violations.size() < MAX_REPORTED_VIOLATIONS) {
+      violations.add(violation);
+    }
+  }
+}